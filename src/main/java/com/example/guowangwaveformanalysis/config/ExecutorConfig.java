@@ -0,0 +1,41 @@
+package com.example.guowangwaveformanalysis.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 报告生成相关的线程池
+ */
+@Configuration
+public class ExecutorConfig {
+
+    //异步报告任务线程池：线程数、排队上限固定，队列满时拒绝（接口返回 429）；虚拟线程模式下线程由 reportJobThreadFactory 创建
+    @Bean
+    public ThreadPoolTaskExecutor reportJobExecutor(
+            @Value("${report.jobs.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int threads,
+            @Value("${report.jobs.queue-capacity:32}") int queueCapacity,
+            ObjectProvider<ThreadFactory> reportJobThreadFactory) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        reportJobThreadFactory.ifAvailable(executor::setThreadFactory);
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("report-job-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    //批量生成时并行填充各监测点报告的 fork-join 池
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool reportForkJoinPool(
+            @Value("${report.batch.parallelism:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int parallelism) {
+        return new ForkJoinPool(parallelism);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.guowangwaveformanalysis.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 虚拟线程模式（--spring.profiles.active=virtual-threads，需 JDK 21 及以上）：
+ * Tomcat 每个请求、异步报告任务各用一个虚拟线程，上传落盘、读取上传、写出报告、下载等阻塞时不占平台线程；
+ * 解析Excel、填充模板等 CPU 密集的部分交给线程数固定的 reportCpuExecutor。
+ * 项目仍按 Java 17 编译，虚拟线程的 API 通过反射调用。
+ */
+@Configuration
+@Profile("virtual-threads")
+public class VirtualThreadConfig {
+
+    //每个任务一个虚拟线程的执行器，供 Tomcat 处理请求
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService requestVirtualThreadExecutor() {
+        return newVirtualThreadPerTaskExecutor("http-vt-");
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(ExecutorService requestVirtualThreadExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(requestVirtualThreadExecutor);
+    }
+
+    //异步报告任务线程池改用虚拟线程（线程数、排队上限仍按 report.jobs 配置）
+    @Bean
+    public ThreadFactory reportJobThreadFactory() {
+        return virtualThreadFactory("report-job-vt-");
+    }
+
+    //CPU 密集阶段的平台线程池，线程数默认取 CPU 核数
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService reportCpuExecutor(
+            @Value("${report.cpu.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                task -> new Thread(task, "report-cpu-" + count.incrementAndGet()));
+    }
+
+    /**
+     * 虚拟线程工厂，线程名为 prefix 加序号
+     * @throws IllegalStateException 当前 JDK 不支持虚拟线程
+     */
+    public static ThreadFactory virtualThreadFactory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> ofVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            builder = ofVirtual.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (NoSuchMethodException | ClassNotFoundException e) {
+            throw new IllegalStateException("虚拟线程需要 JDK 21 及以上，当前为 " + Runtime.version(), e);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("创建虚拟线程工厂失败", e);
+        }
+    }
+
+    /**
+     * 每个任务一个虚拟线程的执行器
+     * @throws IllegalStateException 当前 JDK 不支持虚拟线程
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor(String prefix) {
+        ThreadFactory factory = virtualThreadFactory(prefix);
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("创建虚拟线程执行器失败", e);
+        }
+    }
+}
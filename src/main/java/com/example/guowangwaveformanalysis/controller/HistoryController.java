@@ -0,0 +1,102 @@
+package com.example.guowangwaveformanalysis.controller;
+
+import com.example.guowangwaveformanalysis.service.HistoryService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 历史测量查询：列名由 quantity、harmonic、stat 拼成，如 quantity=UA&harmonic=5&stat=p95 即 UA_H5.p95，
+ * 日期为 yyyy-MM-dd，按监测开始日期筛选
+ */
+@Slf4j
+@RestController
+@RequestMapping("/history")
+public class HistoryController {
+
+    //关闭（report.history.enabled=false）时为 null
+    @Autowired(required = false)
+    private HistoryService historyService;
+
+    @GetMapping("/columns")
+    public Map<String, Object> columns() {
+        Map<String, Object> result = new HashMap<>();
+        if (historyService == null) {
+            return disabled(result);
+        }
+        result.put("data", historyService.columns());
+        result.put("code", 0);
+        result.put("msg", "ok");
+        return result;
+    }
+
+    // 某个监测位置的趋势，如 5 次谐波电压 95% 概率值两年来的变化
+    @GetMapping("/trend")
+    public Map<String, Object> trend(
+            @RequestParam("position") String position,
+            @RequestParam("quantity") String quantity,
+            @RequestParam(value = "harmonic", required = false) Integer harmonic,
+            @RequestParam(value = "stat", defaultValue = "p95") String stat,
+            @RequestParam(value = "site", required = false) String site,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        Map<String, Object> result = new HashMap<>();
+        if (historyService == null) {
+            return disabled(result);
+        }
+        try {
+            result.put("data", historyService.trend(columnOf(quantity, harmonic, stat), position, site, from, to));
+            result.put("code", 0);
+            result.put("msg", "ok");
+        } catch (IllegalArgumentException e) {
+            result.put("code", 1);
+            result.put("msg", e.getMessage());
+        }
+        return result;
+    }
+
+    // 值最大的 n 个监测位置
+    @GetMapping("/top")
+    public Map<String, Object> top(
+            @RequestParam("quantity") String quantity,
+            @RequestParam(value = "harmonic", required = false) Integer harmonic,
+            @RequestParam(value = "stat", defaultValue = "p95") String stat,
+            @RequestParam(value = "n", defaultValue = "10") int n,
+            @RequestParam(value = "site", required = false) String site,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        Map<String, Object> result = new HashMap<>();
+        if (historyService == null) {
+            return disabled(result);
+        }
+        try {
+            result.put("data", historyService.top(columnOf(quantity, harmonic, stat), n, site, from, to));
+            result.put("code", 0);
+            result.put("msg", "ok");
+        } catch (IllegalArgumentException e) {
+            result.put("code", 1);
+            result.put("msg", e.getMessage());
+        }
+        return result;
+    }
+
+    private static String columnOf(String quantity, Integer harmonic, String stat) {
+        return (harmonic == null ? quantity : quantity + "_H" + harmonic) + "." + stat;
+    }
+
+    private static Map<String, Object> disabled(Map<String, Object> result) {
+        result.put("code", 1);
+        result.put("msg", "历史测量库未启用");
+        return result;
+    }
+}
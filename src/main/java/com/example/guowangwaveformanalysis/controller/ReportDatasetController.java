@@ -0,0 +1,95 @@
+package com.example.guowangwaveformanalysis.controller;
+
+import com.example.guowangwaveformanalysis.pojo.ReportForm;
+import com.example.guowangwaveformanalysis.service.TemplateService;
+import com.example.guowangwaveformanalysis.service.XlsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 数据集：Excel 先上传、解析一次（POST /reports/datasets），之后修改字段、仪器时调用
+ * POST /reports/{datasetId}/render 重新生成，不再上传、解析 Excel。数据集一段时间不用后过期。
+ */
+@Slf4j
+@RestController
+@RequestMapping("/reports")
+public class ReportDatasetController {
+
+    @Autowired
+    private XlsService xlsService;
+
+    @Autowired
+    private TemplateService templateService;
+
+    @Value("${report.dataset.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    @PostMapping("/datasets")
+    public Map<String, Object> register(@RequestParam("file") MultipartFile file) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            UploadChecks.requireExcel(file);
+            String datasetId = xlsService.registerDataset(file);
+            result.put("datasetId", datasetId);
+            result.put("renderUrl", "/reports/" + datasetId + "/render");
+            result.put("ttlMinutes", ttlMinutes);
+            result.put("code", 0);
+            result.put("msg", "ok");
+        } catch (Exception e) {
+            log.error("数据集登记失败", e);
+            result.put("code", 1);
+            result.put("msg", "文件处理失败：" + e.getMessage());
+        }
+        return result;
+    }
+
+    // 参数与 /upload 相同，只是不再传 Excel
+    @PostMapping("/{datasetId}/render")
+    public ResponseEntity<Map<String, Object>> render(
+            @PathVariable String datasetId,
+            @RequestParam(value = "templateFile", required = false) MultipartFile templateFile,
+            @RequestParam(value = "templateId", required = false) String templateId,
+            @RequestParam(value = "images", required = false) MultipartFile[] images,
+            ReportForm form
+    ) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            List<String> missing = form.missingFields();
+            if (!missing.isEmpty()) {
+                throw new IllegalArgumentException("缺少字段：" + missing);
+            }
+            UploadChecks.requireWordIfPresent(templateFile);
+            UploadChecks.requireImages(images);
+            List<Map<String, String>> measurementList = form.parseMeasurements();
+            Map<String, String> replaceMap = form.toReplaceMap(measurementList);
+            templateId = templateService.resolve(templateFile, templateId);
+
+            String outputPath = xlsService.renderDataset(datasetId, templateId, images, replaceMap, measurementList);
+            if (outputPath == null) {
+                result.put("code", 1);
+                result.put("msg", "数据集不存在或已过期，请重新上传");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(result);
+            }
+            String fileName = outputPath.substring(outputPath.lastIndexOf(File.separator) + 1);
+            result.put("downloadUrl", "/download/" + fileName);
+            result.put("templateId", templateId);
+            result.put("code", 0);
+            result.put("msg", "ok");
+        } catch (Exception e) {
+            log.error("按数据集生成报告失败", e);
+            result.put("code", 1);
+            result.put("msg", "文件处理失败：" + e.getMessage());
+        }
+        return ResponseEntity.ok(result);
+    }
+}
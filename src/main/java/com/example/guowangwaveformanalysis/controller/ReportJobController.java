@@ -0,0 +1,89 @@
+package com.example.guowangwaveformanalysis.controller;
+
+import com.example.guowangwaveformanalysis.pojo.ReportForm;
+import com.example.guowangwaveformanalysis.pojo.ReportJob;
+import com.example.guowangwaveformanalysis.service.ReportJobService;
+import com.example.guowangwaveformanalysis.service.TemplateService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 异步报告任务：提交后立即返回任务ID，通过 GET /jobs/{id} 轮询进度
+ */
+@Slf4j
+@RestController
+@RequestMapping("/jobs")
+public class ReportJobController {
+
+    @Autowired
+    private ReportJobService reportJobService;
+
+    @Autowired
+    private TemplateService templateService;
+
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> submit(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "templateFile", required = false) MultipartFile templateFile,
+            @RequestParam(value = "templateId", required = false) String templateId,
+            @RequestParam(value = "images", required = false) MultipartFile[] images,
+            ReportForm form
+    ) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            List<String> missing = form.missingFields();
+            if (!missing.isEmpty()) {
+                throw new IllegalArgumentException("缺少字段：" + missing);
+            }
+            // 排队前先嗅探文件头，类型不对的上传不占用队列
+            UploadChecks.requireExcel(file);
+            UploadChecks.requireWordIfPresent(templateFile);
+            UploadChecks.requireImages(images);
+            List<Map<String, String>> measurementList = form.parseMeasurements();
+            Map<String, String> replaceMap = form.toReplaceMap(measurementList);
+            templateId = templateService.resolve(templateFile, templateId);
+
+            ReportJob job = reportJobService.submit(file, templateId, images, replaceMap, measurementList);
+            result.put("jobId", job.getId());
+            result.put("statusUrl", "/jobs/" + job.getId());
+            result.put("templateId", templateId);
+            result.put("code", 0);
+            result.put("msg", "ok");
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(result);
+        } catch (RejectedExecutionException e) {
+            log.warn("报告任务队列已满，拒绝新任务");
+            result.put("code", 1);
+            result.put("msg", "任务队列已满，请稍后重试");
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header("Retry-After", "10").body(result);
+        } catch (Exception e) {
+            log.error("提交报告任务失败", e);
+            result.put("code", 1);
+            result.put("msg", "文件处理失败：" + e.getMessage());
+            return ResponseEntity.ok(result);
+        }
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<Map<String, Object>> status(@PathVariable String jobId) {
+        Map<String, Object> result = new HashMap<>();
+        ReportJob job = reportJobService.get(jobId);
+        if (job == null) {
+            result.put("code", 1);
+            result.put("msg", "任务不存在或已过期");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(result);
+        }
+        result.put("code", 0);
+        result.put("msg", "ok");
+        result.put("data", job);
+        return ResponseEntity.ok(result);
+    }
+}
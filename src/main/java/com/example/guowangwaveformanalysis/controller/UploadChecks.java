@@ -0,0 +1,63 @@
+package com.example.guowangwaveformanalysis.controller;
+
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * 上传文件的内容嗅探：按文件头判断类型，只读取开头几十个字节。
+ * 在解析、排队之前拒绝类型不对的文件，不依赖扩展名和 Content-Type。
+ */
+final class UploadChecks {
+
+    private static final Set<FileMagic> EXCEL = EnumSet.of(FileMagic.OOXML, FileMagic.OLE2);
+    private static final Set<FileMagic> WORD = EnumSet.of(FileMagic.OOXML);
+    private static final Set<FileMagic> IMAGE = EnumSet.of(FileMagic.PNG, FileMagic.JPEG, FileMagic.GIF, FileMagic.BMP);
+
+    private UploadChecks() {
+    }
+
+    static void requireExcel(MultipartFile file) throws IOException {
+        require(file, EXCEL, "Excel（xlsx/xls）");
+    }
+
+    static void requireExcel(MultipartFile[] files) throws IOException {
+        if (files != null) {
+            for (MultipartFile file : files) {
+                requireExcel(file);
+            }
+        }
+    }
+
+    //模板可不传（使用 templateId）
+    static void requireWordIfPresent(MultipartFile file) throws IOException {
+        if (file != null && !file.isEmpty()) {
+            require(file, WORD, "Word 模板（docx）");
+        }
+    }
+
+    static void requireImages(MultipartFile[] files) throws IOException {
+        if (files != null) {
+            for (MultipartFile file : files) {
+                require(file, IMAGE, "图片（png/jpg/gif/bmp）");
+            }
+        }
+    }
+
+    private static void require(MultipartFile file, Set<FileMagic> allowed, String expected) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("上传文件为空，应为" + expected);
+        }
+        FileMagic magic;
+        try (InputStream in = FileMagic.prepareToCheckMagic(file.getInputStream())) {
+            magic = FileMagic.valueOf(in);
+        }
+        if (!allowed.contains(magic)) {
+            throw new IllegalArgumentException("文件 " + file.getOriginalFilename() + " 不是" + expected);
+        }
+    }
+}
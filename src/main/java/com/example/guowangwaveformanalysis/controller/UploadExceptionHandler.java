@@ -0,0 +1,32 @@
+package com.example.guowangwaveformanalysis.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 上传超过大小限制时返回 413，响应格式与其他接口一致
+ */
+@Slf4j
+@RestControllerAdvice
+public class UploadExceptionHandler {
+
+    @Value("${spring.servlet.multipart.max-file-size:512MB}")
+    private String maxFileSize;
+
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    public ResponseEntity<Map<String, Object>> uploadTooLarge(MaxUploadSizeExceededException e) {
+        log.warn("上传文件超过大小限制：{}", e.getMessage());
+        Map<String, Object> result = new HashMap<>();
+        result.put("code", 1);
+        result.put("msg", "上传文件过大，单个文件不能超过 " + maxFileSize);
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(result);
+    }
+}
@@ -1,16 +1,24 @@
 package com.example.guowangwaveformanalysis.controller;
 
+import com.example.guowangwaveformanalysis.pojo.ReportForm;
+import com.example.guowangwaveformanalysis.service.BatchReportService;
+import com.example.guowangwaveformanalysis.service.ReportStoreService;
+import com.example.guowangwaveformanalysis.service.TemplateService;
 import com.example.guowangwaveformanalysis.service.XlsService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 @Slf4j
@@ -20,91 +28,72 @@ public class XlsController {
     @Autowired
     private XlsService xlsService;
 
+    @Autowired
+    private ReportStoreService reportStore;
+
+    @Autowired
+    private TemplateService templateService;
+
+    @Autowired
+    private BatchReportService batchReportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    //报告保留时间，作为下载的缓存时间
+    @Value("${report.output.ttl-minutes:1440}")
+    private long reportTtlMinutes;
+
+    // 预先登记模板，之后 /upload 只需传 templateId
+    @PostMapping("/templates")
+    public Map<String, Object> registerTemplate(@RequestParam("templateFile") MultipartFile templateFile) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            UploadChecks.requireWordIfPresent(templateFile);
+            result.put("templateId", templateService.register(templateFile));
+            result.put("code", 0);
+            result.put("msg", "ok");
+        } catch (Exception e) {
+            log.error("模板登记失败", e);
+            result.put("code", 1);
+            result.put("msg", "模板处理失败：" + e.getMessage());
+        }
+        return result;
+    }
+
     @PostMapping("/upload")
     public Map<String, Object> upload(
             @RequestParam("file") MultipartFile file,
-            @RequestParam("templateFile") MultipartFile templateFile,
+            // 模板二选一：直接上传模板文件，或传入已登记模板的 templateId
+            @RequestParam(value = "templateFile", required = false) MultipartFile templateFile,
+            @RequestParam(value = "templateId", required = false) String templateId,
             @RequestParam(value = "images", required = false) MultipartFile[] images,
-
-            // 固定字段
-            @RequestParam("reportNo") String reportNo,
-            @RequestParam("client") String client,
-            @RequestParam("addressOfClient") String addressOfClient,
-            @RequestParam("applicant") String applicant,
-            @RequestParam("addressOfApplicant") String addressOfApplicant,
-            @RequestParam("testSite") String testSite,
-            @RequestParam("voltage") String voltage,
-            @RequestParam("spot") String spot,
-            @RequestParam("environmentTemperature") String environmentTemperature,
-            @RequestParam("relativeHumidity") String relativeHumidity,
-
-            // 时间
-            @RequestParam("startYear") String startYear,
-            @RequestParam("startMonth") String startMonth,
-            @RequestParam("startDay") String startDay,
-            @RequestParam("startHour") String startHour,
-            @RequestParam("startMinute") String startMinute,
-            @RequestParam("endYear") String endYear,
-            @RequestParam("endMonth") String endMonth,
-            @RequestParam("endDay") String endDay,
-            @RequestParam("endHour") String endHour,
-            @RequestParam("endMinute") String endMinute,
-
-            // 动态仪器，前端需用 JSON.stringify(fields.measurements)
-            @RequestParam(value = "measurements", required = false) String measurementsJson
+            // 固定字段、时间及动态仪器
+            ReportForm form
     ) {
         Map<String, Object> result = new HashMap<>();
         try {
-            Map<String, String> replaceMap = new HashMap<>();
-            replaceMap.put("reportNo", reportNo);
-            replaceMap.put("client", client);
-            replaceMap.put("addressOfClient", addressOfClient);
-            replaceMap.put("applicant", applicant);
-            replaceMap.put("addressOfApplicant", addressOfApplicant);
-            replaceMap.put("testSite", testSite);
-            replaceMap.put("voltage", voltage);
-            replaceMap.put("spot", spot);
-            replaceMap.put("environmentTemperature", environmentTemperature);
-            replaceMap.put("relativeHumidity", relativeHumidity);
-            replaceMap.put("startYear", startYear);
-            replaceMap.put("startMonth", startMonth);
-            replaceMap.put("startDay", startDay);
-            replaceMap.put("startHour", startHour);
-            replaceMap.put("startMinute", startMinute);
-            replaceMap.put("endYear", endYear);
-            replaceMap.put("endMonth", endMonth);
-            replaceMap.put("endDay", endDay);
-            replaceMap.put("endHour", endHour);
-            replaceMap.put("endMinute", endMinute);
-
-            // 1. 解析仪器参数（字符串转List<Map>）
-            List<Map<String, String>> measurementList = new ArrayList<>();
-            if (measurementsJson != null && !measurementsJson.isEmpty()) {
-                ObjectMapper objectMapper = new ObjectMapper();
-                measurementList = objectMapper.readValue(measurementsJson, new TypeReference<List<Map<String, String>>>() {});
+            List<String> missing = form.missingFields();
+            if (!missing.isEmpty()) {
+                throw new IllegalArgumentException("缺少字段：" + missing);
             }
+            UploadChecks.requireExcel(file);
+            UploadChecks.requireWordIfPresent(templateFile);
+            UploadChecks.requireImages(images);
 
-            // 2. 拼接仪器字符串（自动换行，每个用两个空格隔开字段，支持多行）
-            StringBuilder sb = new StringBuilder();
-            for (Map<String, String> item : measurementList) {
-                sb.append(item.getOrDefault("measurement", ""))
-                        .append("  ")
-                        .append(item.getOrDefault("certificateNo", ""))
-                        .append("  ")
-                        .append(item.getOrDefault("certificateDate", ""))
-                        .append("\n");
-            }
-            if (sb.length() > 0) {
-                replaceMap.put("measurement", sb.toString().trim());
-            } else {
-                replaceMap.put("measurement", "");
-            }
+            // 1. 解析仪器参数，并生成替换字段
+            List<Map<String, String>> measurementList = form.parseMeasurements();
+            Map<String, String> replaceMap = form.toReplaceMap(measurementList);
+
+            // 2. 确定模板
+            templateId = templateService.resolve(templateFile, templateId);
 
             // 3. 传递到 service 层
-            String outputPath = xlsService.processExcelFile(file, templateFile, images, replaceMap,measurementList);
+            String outputPath = xlsService.processExcelFile(file, templateId, images, replaceMap,measurementList);
             String fileName = outputPath.substring(outputPath.lastIndexOf(File.separator) + 1);
             String downloadUrl = "/download/" + fileName;
             result.put("downloadUrl", downloadUrl);
+            result.put("templateId", templateId);
             result.put("code", 0);
             result.put("msg", "ok");
         } catch (Exception e) {
@@ -115,22 +104,98 @@ public class XlsController {
         return result;
     }
 
+    // 同步直出：stream=true 时填充完成的报告直接写入响应（分块传输），不落盘，也无需再请求 /download。
+    // 填充失败时仍返回与 /upload 相同的 JSON；生成文件供异步任务、批量生成使用的流程不变。
+    @PostMapping(value = "/upload", params = "stream=true")
+    public void uploadAndStream(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "templateFile", required = false) MultipartFile templateFile,
+            @RequestParam(value = "templateId", required = false) String templateId,
+            @RequestParam(value = "images", required = false) MultipartFile[] images,
+            ReportForm form,
+            HttpServletResponse response
+    ) throws Exception {
+        try {
+            List<String> missing = form.missingFields();
+            if (!missing.isEmpty()) {
+                throw new IllegalArgumentException("缺少字段：" + missing);
+            }
+            UploadChecks.requireExcel(file);
+            UploadChecks.requireWordIfPresent(templateFile);
+            UploadChecks.requireImages(images);
+            List<Map<String, String>> measurementList = form.parseMeasurements();
+            Map<String, String> replaceMap = form.toReplaceMap(measurementList);
+            String resolvedTemplateId = templateService.resolve(templateFile, templateId);
+
+            xlsService.writeReport(file, resolvedTemplateId, images, replaceMap, measurementList, report -> {
+                response.setContentType("application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+                response.setHeader("Content-Disposition", ContentDisposition.attachment()
+                        .filename(report.getMonitorPosition() + "检测报告.docx", StandardCharsets.UTF_8).build().toString());
+                response.setHeader("X-Template-Id", resolvedTemplateId);
+                return response.getOutputStream();
+            });
+        } catch (Exception e) {
+            log.error("上传失败", e);
+            if (response.isCommitted()) {
+                // 已开始输出文档，只能中断连接
+                throw e;
+            }
+            Map<String, Object> result = new HashMap<>();
+            result.put("code", 1);
+            result.put("msg", "文件处理失败：" + e.getMessage());
+            response.reset();
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            objectMapper.writeValue(response.getOutputStream(), result);
+        }
+    }
+
+    // 批量生成：多个监测点的Excel共用一个模板和一组字段，mode=zip 打包各自的报告，mode=merge 合并为一份报告
+    @PostMapping("/batch")
+    public Map<String, Object> batch(
+            @RequestParam("files") MultipartFile[] files,
+            @RequestParam(value = "templateFile", required = false) MultipartFile templateFile,
+            @RequestParam(value = "templateId", required = false) String templateId,
+            @RequestParam(value = "mode", defaultValue = "zip") String mode,
+            ReportForm form
+    ) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            List<String> missing = form.missingFields();
+            if (!missing.isEmpty()) {
+                throw new IllegalArgumentException("缺少字段：" + missing);
+            }
+            UploadChecks.requireExcel(files);
+            UploadChecks.requireWordIfPresent(templateFile);
+            List<Map<String, String>> measurementList = form.parseMeasurements();
+            Map<String, String> replaceMap = form.toReplaceMap(measurementList);
+            templateId = templateService.resolve(templateFile, templateId);
+            BatchReportService.Mode batchMode = BatchReportService.Mode.valueOf(mode.toUpperCase());
+
+            String outputPath = batchReportService.generate(files, templateId, replaceMap, measurementList, batchMode);
+            String fileName = outputPath.substring(outputPath.lastIndexOf(File.separator) + 1);
+            result.put("downloadUrl", "/download/" + fileName);
+            result.put("templateId", templateId);
+            result.put("code", 0);
+            result.put("msg", "ok");
+        } catch (Exception e) {
+            log.error("批量生成失败", e);
+            result.put("code", 1);
+            result.put("msg", "文件处理失败：" + e.getMessage());
+        }
+        return result;
+    }
+
+    //下载报告，支持断点续传与协商缓存
     @GetMapping("/download/{fileName:.+}")
-    public void downloadFile(@PathVariable String fileName, HttpServletResponse response) throws IOException {
-        java.io.File file = new java.io.File("outputs", fileName);
-        if (!file.exists()) {
+    public void downloadFile(@PathVariable String fileName, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        java.nio.file.Path path = reportStore.resolve(fileName);
+        if (path == null || !java.nio.file.Files.isRegularFile(path)) {
             response.setStatus(HttpServletResponse.SC_NOT_FOUND);
             return;
         }
-        response.setContentType("application/vnd.openxmlformats-officedocument.wordprocessingml.document");
-        response.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
-        try (java.io.FileInputStream fis = new java.io.FileInputStream(file);
-             java.io.OutputStream os = response.getOutputStream()) {
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = fis.read(buffer)) != -1) {
-                os.write(buffer, 0, bytesRead);
-            }
-        }
+        String contentType = fileName.endsWith(".zip") ? "application/zip"
+                : "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+        ReportFileSender.send(path, fileName, contentType, reportTtlMinutes * 60, request, response);
     }
 }
@@ -0,0 +1,67 @@
+package com.example.guowangwaveformanalysis.pojo;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 从Excel解析出的各工作表数据（已处理合并单元格），按工作表名存放
+ */
+public class ExcelSheetData {
+
+    public static final String VOLTAGE_HARMONIC = "电压谐波";
+    public static final String CURRENT_HARMONIC = "电流谐波";
+    public static final String POWER = "功率";
+
+    private final Map<String, MeasurementMatrix> sheets = new LinkedHashMap<>();
+
+    //取工作表数据，不存在时返回空表
+    public MeasurementMatrix getSheet(String name) {
+        return sheets.getOrDefault(name, MeasurementMatrix.empty());
+    }
+
+    public void putSheet(String name, MeasurementMatrix matrix) {
+        sheets.put(name, matrix);
+    }
+
+    //各工作表行数之和
+    public int getRowCount() {
+        int rows = 0;
+        for (MeasurementMatrix matrix : sheets.values()) {
+            rows += matrix.getRowCount();
+        }
+        return rows;
+    }
+
+    //二进制形式：工作表个数，之后逐个写工作表名和数据
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(sheets.size());
+        for (Map.Entry<String, MeasurementMatrix> sheet : sheets.entrySet()) {
+            out.writeUTF(sheet.getKey());
+            sheet.getValue().writeTo(out);
+        }
+    }
+
+    public static ExcelSheetData readFrom(DataInputStream in) throws IOException {
+        ExcelSheetData data = new ExcelSheetData();
+        for (int n = in.readInt(); n > 0; n--) {
+            String name = in.readUTF();
+            data.putSheet(name, MeasurementMatrix.readFrom(in));
+        }
+        return data;
+    }
+
+    public MeasurementMatrix getVoltageHarmonicData() {
+        return getSheet(VOLTAGE_HARMONIC);
+    }
+
+    public MeasurementMatrix getCurrentHarmonicData() {
+        return getSheet(CURRENT_HARMONIC);
+    }
+
+    public MeasurementMatrix getPowerData() {
+        return getSheet(POWER);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.guowangwaveformanalysis.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 历史测量库查询结果中的一次监测：监测记录号、测试地点、监测位置、起止日期（yyyy-MM-dd，未知时为 null）及该列的值
+ */
+@Data
+@AllArgsConstructor
+public class HistoryPoint {
+    private int campaignId;
+    private String site;
+    private String position;
+    private String start;
+    private String end;
+    private double value;
+}
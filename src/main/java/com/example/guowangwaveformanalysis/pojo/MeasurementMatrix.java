@@ -0,0 +1,195 @@
+package com.example.guowangwaveformanalysis.pojo;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 单个工作表的测量数据，按列连续存放在 double[] 中（下标 col * rowCount + row）。
+ * 导出表中行对应谐波次数或统计项，列对应相别与统计量（平均值、95%概率值、最大、最小、限值），
+ * 解析时一次性转换，缺失或非数字的单元格为 NaN；文字单元格（如监测位置、“±0.2”）另存原文。
+ */
+public class MeasurementMatrix {
+
+    private static final MeasurementMatrix EMPTY = new MeasurementMatrix(0, 0);
+
+    private final int rowCount;
+    private final int colCount;
+    private final double[] values;
+    //非数字单元格的原文，按需创建
+    private String[] texts;
+    //来自整数格式（Long）的单元格，取原文时不带“.0”
+    private BitSet integral = new BitSet();
+
+    private MeasurementMatrix(int rowCount, int colCount) {
+        this.rowCount = rowCount;
+        this.colCount = colCount;
+        this.values = new double[rowCount * colCount];
+        Arrays.fill(values, Double.NaN);
+    }
+
+    public static MeasurementMatrix empty() {
+        return EMPTY;
+    }
+
+    //由读取结果（已回填合并单元格）转换
+    public static MeasurementMatrix of(List<List<Object>> rows) {
+        int cols = 0;
+        for (List<Object> row : rows) {
+            cols = Math.max(cols, row.size());
+        }
+        MeasurementMatrix matrix = new MeasurementMatrix(rows.size(), cols);
+        for (int r = 0; r < rows.size(); r++) {
+            List<Object> row = rows.get(r);
+            for (int c = 0; c < row.size(); c++) {
+                matrix.set(r, c, row.get(c));
+            }
+        }
+        return matrix;
+    }
+
+    private void set(int row, int col, Object value) {
+        if (value == null) {
+            return;
+        }
+        int index = col * rowCount + row;
+        if (value instanceof Number) {
+            values[index] = ((Number) value).doubleValue();
+            if (value instanceof Long || value instanceof Integer) {
+                integral.set(index);
+            }
+            return;
+        }
+        String text = value.toString();
+        values[index] = parse(text);
+        if (texts == null) {
+            texts = new String[values.length];
+        }
+        texts[index] = text;
+    }
+
+    //文字单元格中的数字（如“0.22”“ 1.23”）也按数值读取，与 Double.parseDouble 一样忽略首尾空白，其余为 NaN
+    private static double parse(String text) {
+        String trimmed = text.trim();
+        if (trimmed.isEmpty()) {
+            return Double.NaN;
+        }
+        char first = trimmed.charAt(0);
+        if (!(first >= '0' && first <= '9') && first != '-' && first != '+' && first != '.') {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(trimmed);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColCount() {
+        return colCount;
+    }
+
+    //数值，超出范围、空白或非数字时为 NaN
+    public double value(int row, int col) {
+        if (row < 0 || row >= rowCount || col < 0 || col >= colCount) {
+            return Double.NaN;
+        }
+        return values[col * rowCount + row];
+    }
+
+    //单元格原文，空白时为 null
+    public String text(int row, int col) {
+        if (row < 0 || row >= rowCount || col < 0 || col >= colCount) {
+            return null;
+        }
+        int index = col * rowCount + row;
+        if (texts != null && texts[index] != null) {
+            return texts[index];
+        }
+        double v = values[index];
+        if (Double.isNaN(v)) {
+            return null;
+        }
+        return integral.get(index) ? Long.toString((long) v) : Double.toString(v);
+    }
+
+    //紧凑的二进制形式：只写非空单元格（下标 + 值）、整数标记和文字原文
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(rowCount);
+        out.writeInt(colCount);
+        int present = 0;
+        for (double v : values) {
+            if (!Double.isNaN(v)) {
+                present++;
+            }
+        }
+        out.writeInt(present);
+        for (int i = 0; i < values.length; i++) {
+            if (!Double.isNaN(values[i])) {
+                out.writeInt(i);
+                out.writeDouble(values[i]);
+            }
+        }
+        long[] words = integral.toLongArray();
+        out.writeInt(words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+        int textCount = 0;
+        if (texts != null) {
+            for (String text : texts) {
+                if (text != null) {
+                    textCount++;
+                }
+            }
+        }
+        out.writeInt(textCount);
+        for (int i = 0; textCount > 0 && i < texts.length; i++) {
+            if (texts[i] != null) {
+                byte[] bytes = texts[i].getBytes(StandardCharsets.UTF_8);
+                out.writeInt(i);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    public static MeasurementMatrix readFrom(DataInputStream in) throws IOException {
+        MeasurementMatrix matrix = new MeasurementMatrix(in.readInt(), in.readInt());
+        for (int n = in.readInt(); n > 0; n--) {
+            int index = in.readInt();
+            matrix.values[index] = in.readDouble();
+        }
+        long[] words = new long[in.readInt()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.readLong();
+        }
+        matrix.integral = BitSet.valueOf(words);
+        int textCount = in.readInt();
+        if (textCount > 0) {
+            matrix.texts = new String[matrix.values.length];
+        }
+        for (int n = textCount; n > 0; n--) {
+            int index = in.readInt();
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            matrix.texts[index] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return matrix;
+    }
+
+    //把第 col 列 fromRow 起的 length 个值复制到 dst，超出部分填 NaN
+    public void copyColumn(int col, int fromRow, double[] dst, int dstPos, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[dstPos + i] = value(fromRow + i, col);
+        }
+    }
+}
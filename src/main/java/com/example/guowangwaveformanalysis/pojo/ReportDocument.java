@@ -0,0 +1,26 @@
+package com.example.guowangwaveformanalysis.pojo;
+
+import lombok.Getter;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+
+import java.io.IOException;
+
+/**
+ * 已填充、尚未写出的报告文档
+ */
+@Getter
+public class ReportDocument implements AutoCloseable {
+    private final XWPFDocument document;
+    //监测位置（取自电压谐波表第二行）
+    private final String monitorPosition;
+
+    public ReportDocument(XWPFDocument document, String monitorPosition) {
+        this.document = document;
+        this.monitorPosition = monitorPosition;
+    }
+
+    @Override
+    public void close() throws IOException {
+        document.close();
+    }
+}
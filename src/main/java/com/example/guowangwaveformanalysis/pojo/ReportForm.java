@@ -0,0 +1,112 @@
+package com.example.guowangwaveformanalysis.pojo;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * 报告表单字段（/upload、/jobs 共用），由请求参数绑定
+ */
+@Data
+public class ReportForm {
+
+    //必填的固定字段，与模板中的 {{xxx}} 占位符同名
+    private static final List<String> REQUIRED_FIELDS = Arrays.asList(
+            "reportNo", "client", "addressOfClient", "applicant", "addressOfApplicant",
+            "testSite", "voltage", "spot", "environmentTemperature", "relativeHumidity",
+            "startYear", "startMonth", "startDay", "startHour", "startMinute",
+            "endYear", "endMonth", "endDay", "endHour", "endMinute");
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    // 固定字段
+    private String reportNo;
+    private String client;
+    private String addressOfClient;
+    private String applicant;
+    private String addressOfApplicant;
+    private String testSite;
+    private String voltage;
+    private String spot;
+    private String environmentTemperature;
+    private String relativeHumidity;
+
+    // 时间
+    private String startYear;
+    private String startMonth;
+    private String startDay;
+    private String startHour;
+    private String startMinute;
+    private String endYear;
+    private String endMonth;
+    private String endDay;
+    private String endHour;
+    private String endMinute;
+
+    // 动态仪器，前端需用 JSON.stringify(fields.measurements)
+    private String measurements;
+
+    //未填写的必填字段
+    public List<String> missingFields() {
+        Map<String, String> values = fieldValues();
+        List<String> missing = new ArrayList<>();
+        for (String name : REQUIRED_FIELDS) {
+            if (values.get(name) == null) {
+                missing.add(name);
+            }
+        }
+        return missing;
+    }
+
+    //解析仪器参数（字符串转List<Map>）
+    public List<Map<String, String>> parseMeasurements() throws IOException {
+        if (measurements == null || measurements.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return OBJECT_MAPPER.readValue(measurements, new TypeReference<List<Map<String, String>>>() {});
+    }
+
+    //生成占位符替换表，仪器拼成多行字符串（每个用两个空格隔开字段）
+    public Map<String, String> toReplaceMap(List<Map<String, String>> measurementList) {
+        Map<String, String> replaceMap = new HashMap<>(fieldValues());
+        StringBuilder sb = new StringBuilder();
+        for (Map<String, String> item : measurementList) {
+            sb.append(item.getOrDefault("measurement", ""))
+                    .append("  ")
+                    .append(item.getOrDefault("certificateNo", ""))
+                    .append("  ")
+                    .append(item.getOrDefault("certificateDate", ""))
+                    .append("\n");
+        }
+        replaceMap.put("measurement", sb.toString().trim());
+        return replaceMap;
+    }
+
+    private Map<String, String> fieldValues() {
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("reportNo", reportNo);
+        values.put("client", client);
+        values.put("addressOfClient", addressOfClient);
+        values.put("applicant", applicant);
+        values.put("addressOfApplicant", addressOfApplicant);
+        values.put("testSite", testSite);
+        values.put("voltage", voltage);
+        values.put("spot", spot);
+        values.put("environmentTemperature", environmentTemperature);
+        values.put("relativeHumidity", relativeHumidity);
+        values.put("startYear", startYear);
+        values.put("startMonth", startMonth);
+        values.put("startDay", startDay);
+        values.put("startHour", startHour);
+        values.put("startMinute", startMinute);
+        values.put("endYear", endYear);
+        values.put("endMonth", endMonth);
+        values.put("endDay", endDay);
+        values.put("endHour", endHour);
+        values.put("endMinute", endMinute);
+        return values;
+    }
+}
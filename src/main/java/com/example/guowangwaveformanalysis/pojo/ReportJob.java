@@ -0,0 +1,72 @@
+package com.example.guowangwaveformanalysis.pojo;
+
+import lombok.Data;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 异步报告任务的状态
+ */
+@Data
+public class ReportJob {
+
+    public enum Status { QUEUED, RUNNING, SUCCEEDED, FAILED }
+
+    public enum StageStatus { PENDING, RUNNING, DONE }
+
+    private final String id;
+    private volatile Status status = Status.QUEUED;
+    private volatile ReportStage currentStage;
+    private volatile int progress; //0-100
+    private final Map<ReportStage, StageStatus> stages = new EnumMap<>(ReportStage.class);
+    private volatile String downloadUrl;
+    private volatile String error;
+    private final long createdAt = System.currentTimeMillis();
+    private volatile long startedAt;
+    private volatile long finishedAt;
+
+    public ReportJob(String id) {
+        this.id = id;
+        for (ReportStage stage : ReportStage.values()) {
+            stages.put(stage, StageStatus.PENDING);
+        }
+    }
+
+    //进入某个阶段：之前的阶段都视为完成
+    public synchronized void enterStage(ReportStage stage) {
+        for (ReportStage s : ReportStage.values()) {
+            if (s.ordinal() < stage.ordinal()) {
+                stages.put(s, StageStatus.DONE);
+            }
+        }
+        stages.put(stage, StageStatus.RUNNING);
+        currentStage = stage;
+        progress = stage.ordinal() * 100 / ReportStage.values().length;
+    }
+
+    public synchronized void succeed(String downloadUrl) {
+        for (ReportStage s : ReportStage.values()) {
+            stages.put(s, StageStatus.DONE);
+        }
+        this.downloadUrl = downloadUrl;
+        this.progress = 100;
+        this.currentStage = null;
+        this.status = Status.SUCCEEDED;
+        this.finishedAt = System.currentTimeMillis();
+    }
+
+    public synchronized void fail(String error) {
+        this.error = error;
+        this.status = Status.FAILED;
+        this.finishedAt = System.currentTimeMillis();
+    }
+
+    public synchronized Map<ReportStage, StageStatus> getStages() {
+        return new EnumMap<>(stages);
+    }
+
+    public boolean isFinished() {
+        return status == Status.SUCCEEDED || status == Status.FAILED;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.guowangwaveformanalysis.pojo;
+
+import lombok.Getter;
+
+/**
+ * 报告生成的各个阶段
+ */
+@Getter
+public enum ReportStage {
+    PARSE("解析Excel"),
+    FILL_TABLES("填充表格"),
+    IMAGES("插入图片"),
+    CHARTS("生成图表"),
+    WRITE("写出文档");
+
+    private final String description;
+
+    ReportStage(String description) {
+        this.description = description;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.guowangwaveformanalysis.pojo;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 表格映射配置：描述Excel导出格式中各单元格填到Word模板哪张表的哪个单元格。
+ * 由 classpath 下的 JSON 文件描述（见 mapping/default-layout.json），启动时编译为执行计划。
+ */
+@Data
+public class TableLayout {
+
+    //配置名称，仅用于日志
+    private String name;
+    //需要读取的工作表
+    private List<String> sheets = new ArrayList<>();
+    //监测位置所在单元格，取值后去掉“：”及之前的内容
+    private CellRef monitorPosition;
+    //模板中依次出现的表格
+    private List<Table> tables = new ArrayList<>();
+    //由单元格计算得到的占位符
+    private List<Placeholder> placeholders = new ArrayList<>();
+    //原始时间序列导出的统计规则，不配置时只读取统计工作表
+    private Series series;
+    //模板中 {{chart:name}} 处生成的原生图表
+    private List<Chart> charts = new ArrayList<>();
+
+    @Data
+    public static class CellRef {
+        private String sheet;
+        private int row;
+        private int col;
+    }
+
+    @Data
+    public static class Table {
+        //表格标题（不含“表x.y 监测位置”前缀）
+        private String title;
+        private List<Mapping> mappings = new ArrayList<>();
+        private List<Constant> constants = new ArrayList<>();
+    }
+
+    /**
+     * 一块矩形区域的映射：源行 rows[0]..rows[1] 与源列 cols 依次对应
+     * 目标行 dstRow 起、目标列 dstCol 起的连续单元格
+     */
+    @Data
+    public static class Mapping {
+        private String sheet;
+        private int[] rows;
+        private int[] cols;
+        private int dstRow;
+        private int dstCol;
+        //number：数值，先除以 divisor 再加 offset，保留 scale 位小数；text：原样输出；negate：取相反数后按数值输出
+        private String format = "number";
+        private int scale = 2;
+        private double divisor = 1;
+        private double offset = 0;
+        //配置时，各数值（按 divisor、offset 换算后）与同一行 limitCol 列的限值比较，超出的单元格标红，limitCol 列本身不参与比较
+        private Integer limitCol;
+        //upper：不大于限值；lower：不小于限值的相反数（负偏差）；abs：绝对值不大于限值（频率偏差）
+        private String limitMode = "upper";
+    }
+
+    @Data
+    public static class Constant {
+        private int row;
+        private int col;
+        private String text;
+    }
+
+    @Data
+    public static class Placeholder {
+        private String name;
+        //max 或 min
+        private String function = "max";
+        private String sheet;
+        //[[行, 列], ...]
+        private int[][] cells;
+        private int scale = 2;
+    }
+
+    /**
+     * 原始时间序列：sheet 工作表首行为列名，之后每行一个统计间隔。
+     * 各列按 quantities 匹配后计算最大、平均、最小和 95% 概率值，
+     * 写入统计工作表中对应行、相别起始列开始的 columns.size() 个单元格，后续照常按 tables 填表。
+     */
+    @Data
+    public static class Series {
+        private String sheet;
+        //相别 -> 统计工作表中该相第一个统计量所在列
+        private Map<String, Integer> phases = new LinkedHashMap<>();
+        //每相统计量的排列顺序：max、mean、min、p95
+        private List<String> columns = new ArrayList<>();
+        private List<Quantity> quantities = new ArrayList<>();
+        //统计工作表缺失时补上的限值等固定内容
+        private List<Limit> limits = new ArrayList<>();
+    }
+
+    /**
+     * 一种测量量。header 中的 {phase} 按 phases 展开、{h} 按 harmonics 展开（第 h 次写入 row + h - harmonics[0] 行），
+     * 不含 {phase} 时写入 col 列起
+     */
+    @Data
+    public static class Quantity {
+        private String header;
+        private String sheet;
+        private int row;
+        private int col;
+        private int[] harmonics;
+        //原始数据中没有该列时，按同相各次谐波含有率逐行计算总畸变率
+        private String thdOf;
+    }
+
+    /**
+     * 从 row 行 col 列起向下依次写入 values
+     */
+    @Data
+    public static class Limit {
+        private String sheet;
+        private int row;
+        private int col;
+        private List<Object> values = new ArrayList<>();
+    }
+
+    @Data
+    public static class Chart {
+        //占位符 {{chart:name}} 中的名称
+        private String name;
+        private String title;
+        //分类轴标签；配置 harmonics 时按第 harmonics[0]..harmonics[1] 次生成
+        private List<String> categories = new ArrayList<>();
+        private int[] harmonics;
+        private String categoryTitle;
+        private String valueTitle;
+        private List<ChartSeries> series = new ArrayList<>();
+    }
+
+    /**
+     * 图表中的一组数据：依次取 rows[0]..rows[1] 行与 cols 各列交叉的单元格（先行后列），与分类一一对应。
+     * line 为 true 时画成折线（如限值），否则为柱形
+     */
+    @Data
+    public static class ChartSeries {
+        private String name;
+        private String sheet;
+        private int[] rows;
+        private int[] cols;
+        private boolean line;
+    }
+}
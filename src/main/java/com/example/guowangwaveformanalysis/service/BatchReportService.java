@@ -0,0 +1,37 @@
+package com.example.guowangwaveformanalysis.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+import java.util.Map;
+
+public interface BatchReportService {
+
+    /**
+     * 批量输出方式
+     */
+    enum Mode {
+        //每个监测点一份报告，打包为 zip
+        ZIP,
+        //所有监测点的表格合并到一份报告
+        MERGE
+    }
+
+    /**
+     * 用同一模板、同一组字段为多个监测点并行生成报告
+     * @param files          各监测点的Excel文件
+     * @param templateId     模板ID
+     * @param replaceMap     需要替换的基本字段（各监测点共用）
+     * @param measurementList 仪器列表
+     * @param mode           输出方式
+     * @return 输出文件路径
+     * @throws Exception 异常
+     */
+    String generate(
+            MultipartFile[] files,
+            String templateId,
+            Map<String, String> replaceMap,
+            List<Map<String, String>> measurementList,
+            Mode mode
+    ) throws Exception;
+}
@@ -0,0 +1,52 @@
+package com.example.guowangwaveformanalysis.service;
+
+import com.example.guowangwaveformanalysis.pojo.HistoryPoint;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface HistoryService {
+
+    /**
+     * 保存一次监测的统计值；测试地点、监测位置、起止日期都相同的监测再次保存时覆盖原有数值
+     * @param site     测试地点
+     * @param position 监测位置
+     * @param start    开始日期，可为空
+     * @param end      结束日期，可为空
+     * @param columns  列名，如 UA_H5.p95
+     * @param values   与 columns 一一对应的值，缺失为 NaN
+     * @throws IOException 写入失败
+     */
+    void record(String site, String position, LocalDate start, LocalDate end, String[] columns, double[] values) throws IOException;
+
+    /**
+     * 已保存的全部列名
+     * @return 列名
+     */
+    List<String> columns();
+
+    /**
+     * 某个监测位置一列数值随时间的变化，按开始日期排序，缺失值不返回
+     * @param column   列名（不区分大小写）
+     * @param position 监测位置
+     * @param site     测试地点，可为空
+     * @param from     开始日期下限（含），可为空
+     * @param to       开始日期上限（含），可为空
+     * @return 各次监测的值
+     * @throws IllegalArgumentException 没有该列
+     */
+    List<HistoryPoint> trend(String column, String position, String site, LocalDate from, LocalDate to);
+
+    /**
+     * 一列数值最大的 n 个监测位置，每个位置取日期范围内最大的一次
+     * @param column 列名（不区分大小写）
+     * @param n      个数
+     * @param site   测试地点，可为空
+     * @param from   开始日期下限（含），可为空
+     * @param to     开始日期上限（含），可为空
+     * @return 按值从大到小排列
+     * @throws IllegalArgumentException 没有该列
+     */
+    List<HistoryPoint> top(String column, int n, String site, LocalDate from, LocalDate to);
+}
@@ -0,0 +1,35 @@
+package com.example.guowangwaveformanalysis.service;
+
+import com.example.guowangwaveformanalysis.pojo.ReportJob;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+import java.util.Map;
+
+public interface ReportJobService {
+    /**
+     * 提交异步报告任务，上传文件先转存，任务在后台线程池执行
+     * @param file           Excel文件
+     * @param templateId     模板ID
+     * @param images         图片数组
+     * @param replaceMap     需要替换的基本字段
+     * @param measurementList 仪器列表
+     * @return 新建的任务
+     * @throws java.util.concurrent.RejectedExecutionException 任务队列已满
+     * @throws Exception 转存上传文件失败
+     */
+    ReportJob submit(
+            MultipartFile file,
+            String templateId,
+            MultipartFile[] images,
+            Map<String, String> replaceMap,
+            List<Map<String, String>> measurementList
+    ) throws Exception;
+
+    /**
+     * 查询任务
+     * @param jobId 任务ID
+     * @return 任务，不存在或已过期时返回 null
+     */
+    ReportJob get(String jobId);
+}
@@ -0,0 +1,45 @@
+package com.example.guowangwaveformanalysis.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+public interface ReportStoreService {
+
+    /**
+     * 报告写出回调，由调用方把文档内容写入给定输出流
+     */
+    @FunctionalInterface
+    interface ReportWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * 发布一份新报告：先写入临时文件，写完后原子重命名为正式文件
+     * @param writer 报告写出回调
+     * @return 报告文件名（全局唯一）
+     * @throws IOException 写出失败
+     */
+    String publish(ReportWriter writer) throws IOException;
+
+    /**
+     * 以指定扩展名发布报告（如批量生成的 zip 包）
+     * @param extension 扩展名，docx 或 zip
+     * @param writer    报告写出回调
+     * @return 报告文件名（全局唯一）
+     * @throws IOException 写出失败
+     */
+    String publish(String extension, ReportWriter writer) throws IOException;
+
+    /**
+     * 根据文件名定位已发布的报告
+     * @param fileName 报告文件名
+     * @return 报告路径，文件名非法或报告不存在时返回 null
+     */
+    Path resolve(String fileName);
+
+    /**
+     * 清理超过保留时间的报告及残留临时文件
+     */
+    void purgeExpired();
+}
@@ -0,0 +1,48 @@
+package com.example.guowangwaveformanalysis.service;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+
+public interface TemplateService {
+    /**
+     * 登记Word模板，相同内容的模板只保存一份
+     * @param templateFile Word模板
+     * @return 模板ID（模板内容的 SHA-256）
+     * @throws IOException 模板读取或解析失败
+     */
+    String register(MultipartFile templateFile) throws IOException;
+
+    /**
+     * 确定本次使用的模板：上传了模板文件则登记并使用它，否则使用传入的 templateId
+     * @param templateFile Word模板，可为空
+     * @param templateId   已登记的模板ID，可为空
+     * @return 模板ID
+     * @throws IOException 模板读取或解析失败
+     * @throws IllegalArgumentException 两者都未提供
+     */
+    String resolve(MultipartFile templateFile, String templateId) throws IOException;
+
+    /**
+     * 取得一份可独立修改的模板文档，调用方负责关闭
+     * @param templateId 模板ID
+     * @return 模板文档副本
+     * @throws IOException 模板解析失败
+     * @throws IllegalArgumentException 模板不存在或已被淘汰
+     */
+    XWPFDocument open(String templateId) throws IOException;
+
+    /**
+     * 锁定模板，解锁前不会被淘汰；排队中的任务只持有模板ID，执行前用它保证模板仍在
+     * @param templateId 模板ID
+     * @throws IllegalArgumentException 模板不存在或已被淘汰
+     */
+    void pin(String templateId);
+
+    /**
+     * 解除一次 pin，所有锁定都解除后模板可按最久未用淘汰
+     * @param templateId 模板ID
+     */
+    void unpin(String templateId);
+}
@@ -1,10 +1,24 @@
 package com.example.guowangwaveformanalysis.service;
 
+import com.example.guowangwaveformanalysis.pojo.ReportDocument;
+import com.example.guowangwaveformanalysis.pojo.ReportStage;
 import org.springframework.web.multipart.MultipartFile;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Map;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface XlsService {
+
+    /**
+     * 报告输出目标，报告填充完成后才打开，填充失败时调用方仍可返回错误信息
+     */
+    @FunctionalInterface
+    interface ReportSink {
+        OutputStream open(ReportDocument report) throws IOException;
+    }
+
     /**
      * 生成报告
      * @param file           Excel文件
@@ -22,4 +36,108 @@ public interface XlsService {
             Map<String, String> replaceMap,
             List<Map<String, String>> measurementList
     ) throws Exception;
+
+    /**
+     * 使用已登记的模板生成报告
+     * @param file           Excel文件
+     * @param templateId     模板ID（见 TemplateService#register）
+     * @param images         图片数组
+     * @param replaceMap     需要替换的基本字段（String-String）
+     * @param measurementList 仪器列表（每个Map可包含 measurement、certificateNo、certificateDate）
+     * @return 输出Word路径
+     * @throws Exception 异常
+     */
+    String processExcelFile(
+            MultipartFile file,
+            String templateId,
+            MultipartFile[] images,
+            Map<String, String> replaceMap,
+            List<Map<String, String>> measurementList
+    ) throws Exception;
+
+    /**
+     * 使用已登记的模板生成报告，并在进入每个阶段时回调通知
+     * @param file           Excel文件
+     * @param templateId     模板ID（见 TemplateService#register）
+     * @param images         图片数组
+     * @param replaceMap     需要替换的基本字段（String-String）
+     * @param measurementList 仪器列表（每个Map可包含 measurement、certificateNo、certificateDate）
+     * @param progress       阶段回调
+     * @return 输出Word路径
+     * @throws Exception 异常
+     */
+    String processExcelFile(
+            MultipartFile file,
+            String templateId,
+            MultipartFile[] images,
+            Map<String, String> replaceMap,
+            List<Map<String, String>> measurementList,
+            Consumer<ReportStage> progress
+    ) throws Exception;
+
+    /**
+     * 填充一份报告但不写出，供批量生成等场景组合使用
+     * @param file           Excel文件
+     * @param templateId     模板ID
+     * @param images         图片数组
+     * @param replaceMap     需要替换的基本字段（会写入计算出的字段，并发调用时各自传入副本）
+     * @param measurementList 仪器列表
+     * @param chapter        表格标题的章节号，如 1 对应“表1.1”
+     * @return 已填充的报告文档，调用方负责关闭
+     * @throws Exception 异常
+     */
+    ReportDocument buildReport(
+            MultipartFile file,
+            String templateId,
+            MultipartFile[] images,
+            Map<String, String> replaceMap,
+            List<Map<String, String>> measurementList,
+            int chapter
+    ) throws Exception;
+
+    /**
+     * 解析Excel并缓存解析结果，之后只改字段、仪器时用 renderDataset 重新生成，不必再上传
+     * @param file Excel文件
+     * @return 数据集ID
+     * @throws Exception 解析失败
+     * @throws IllegalStateException 数据集缓存未启用
+     */
+    String registerDataset(MultipartFile file) throws Exception;
+
+    /**
+     * 用已缓存的解析结果生成报告，只重新替换字段、仪器，不再解析Excel
+     * @param datasetId      数据集ID（见 registerDataset）
+     * @param templateId     模板ID
+     * @param images         图片数组
+     * @param replaceMap     需要替换的基本字段
+     * @param measurementList 仪器列表
+     * @return 输出Word路径，数据集不存在或已过期时返回 null
+     * @throws Exception 异常
+     */
+    String renderDataset(
+            String datasetId,
+            String templateId,
+            MultipartFile[] images,
+            Map<String, String> replaceMap,
+            List<Map<String, String>> measurementList
+    ) throws Exception;
+
+    /**
+     * 生成报告并直接写入输出流，不在服务器上保存
+     * @param file           Excel文件
+     * @param templateId     模板ID
+     * @param images         图片数组
+     * @param replaceMap     需要替换的基本字段
+     * @param measurementList 仪器列表
+     * @param sink           输出目标，填充完成后打开
+     * @throws Exception 异常
+     */
+    void writeReport(
+            MultipartFile file,
+            String templateId,
+            MultipartFile[] images,
+            Map<String, String> replaceMap,
+            List<Map<String, String>> measurementList,
+            ReportSink sink
+    ) throws Exception;
 }
@@ -0,0 +1,167 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import com.example.guowangwaveformanalysis.pojo.ReportDocument;
+import com.example.guowangwaveformanalysis.service.BatchReportService;
+import com.example.guowangwaveformanalysis.service.ReportStoreService;
+import com.example.guowangwaveformanalysis.service.XlsService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.xwpf.usermodel.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+@Slf4j
+@Service
+public class BatchReportServiceImpl implements BatchReportService {
+
+    @Autowired
+    private XlsService xlsService;
+
+    @Autowired
+    private ReportStoreService reportStore;
+
+    @Autowired
+    private ForkJoinPool reportForkJoinPool;
+
+    @Override
+    public String generate(MultipartFile[] files, String templateId, Map<String, String> replaceMap,
+                           List<Map<String, String>> measurementList, Mode mode) throws Exception {
+        if (files == null || files.length == 0) {
+            throw new IllegalArgumentException("请至少上传一个Excel文件");
+        }
+        long start = System.currentTimeMillis();
+        List<ReportDocument> reports = fillAll(files, templateId, replaceMap, measurementList, mode);
+        try {
+            // 合并、序列化同样在 fork-join 池中执行，不占用（可能是虚拟线程的）请求线程
+            ForkJoinTask<String> publish = reportForkJoinPool.submit(() -> mode == Mode.MERGE
+                    ? reportStore.publish("docx", out -> merge(reports).write(out))
+                    : reportStore.publish("zip", out -> zip(reports, out)));
+            String fileName;
+            try {
+                fileName = publish.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
+                throw (Error) e.getCause();
+            }
+            String outputPath = reportStore.resolve(fileName).toString();
+            log.info("批量报告已生成：{}，监测点 {} 个，耗时 {} ms", outputPath, files.length, System.currentTimeMillis() - start);
+            return outputPath;
+        } finally {
+            closeAll(reports);
+        }
+    }
+
+    //在 fork-join 池中并行填充每个监测点的报告，结果与上传顺序一致
+    private List<ReportDocument> fillAll(MultipartFile[] files, String templateId, Map<String, String> replaceMap,
+                                         List<Map<String, String>> measurementList, Mode mode) throws Exception {
+        List<ForkJoinTask<ReportDocument>> tasks = new ArrayList<>(files.length);
+        for (int i = 0; i < files.length; i++) {
+            MultipartFile file = files[i];
+            // 合并模式下每个监测点占一章，表格依次编号为表1.x、表2.x……
+            int chapter = mode == Mode.MERGE ? i + 1 : 1;
+            tasks.add(reportForkJoinPool.submit(() ->
+                    xlsService.buildReport(file, templateId, null, new HashMap<>(replaceMap), measurementList, chapter)));
+        }
+        List<ReportDocument> reports = new ArrayList<>(files.length);
+        Exception failure = null;
+        for (int i = 0; i < tasks.size(); i++) {
+            try {
+                reports.add(tasks.get(i).get());
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    Throwable cause = e.getCause();
+                    failure = new IllegalStateException("第 " + (i + 1) + " 个文件（" + files[i].getOriginalFilename()
+                            + "）处理失败：" + cause.getMessage(), cause);
+                }
+            }
+        }
+        if (failure != null) {
+            closeAll(reports);
+            throw failure;
+        }
+        return reports;
+    }
+
+    //每个监测点一个 docx，文件名带序号和监测位置
+    private void zip(List<ReportDocument> reports, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < reports.size(); i++) {
+            ReportDocument report = reports.get(i);
+            String name = String.format("%02d-%s.docx", i + 1, safeFileName(report.getMonitorPosition()));
+            if (!names.add(name)) {
+                name = String.format("%02d-%s-%d.docx", i + 1, safeFileName(report.getMonitorPosition()), i);
+            }
+            zip.putNextEntry(new ZipEntry(name));
+            // 文档写出时会关闭传入的流，这里挡住，避免提前关闭 zip
+            report.getDocument().write(new NonClosingOutputStream(zip));
+            zip.closeEntry();
+        }
+        zip.finish();
+    }
+
+    //以第一个监测点的报告为底稿，把其余监测点的表格（连同标题）依次追加到末尾，每个监测点另起一页
+    private XWPFDocument merge(List<ReportDocument> reports) {
+        XWPFDocument base = reports.get(0).getDocument();
+        for (int i = 1; i < reports.size(); i++) {
+            XWPFDocument source = reports.get(i).getDocument();
+            XWPFParagraph pageBreak = base.createParagraph();
+            pageBreak.setPageBreak(true);
+            List<IBodyElement> elements = source.getBodyElements();
+            for (int j = 0; j < elements.size(); j++) {
+                if (elements.get(j).getElementType() != BodyElementType.TABLE) {
+                    continue;
+                }
+                if (j > 0 && elements.get(j - 1).getElementType() == BodyElementType.PARAGRAPH) {
+                    XWPFParagraph title = (XWPFParagraph) elements.get(j - 1);
+                    base.createParagraph().getCTP().set(title.getCTP().copy());
+                }
+                XWPFTable table = (XWPFTable) elements.get(j);
+                base.createTable().getCTTbl().set(table.getCTTbl().copy());
+            }
+        }
+        return base;
+    }
+
+    private static String safeFileName(String name) {
+        String safe = name == null ? "" : name.replaceAll("[\\\\/:*?\"<>|\\s]+", "_");
+        return safe.isEmpty() ? "report" : safe;
+    }
+
+    private static void closeAll(List<ReportDocument> reports) {
+        for (ReportDocument report : reports) {
+            try {
+                report.close();
+            } catch (IOException e) {
+                log.warn("关闭报告文档失败", e);
+            }
+        }
+    }
+
+    private static class NonClosingOutputStream extends java.io.FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
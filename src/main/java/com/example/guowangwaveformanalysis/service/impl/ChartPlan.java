@@ -0,0 +1,159 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import com.example.guowangwaveformanalysis.pojo.MeasurementMatrix;
+import com.example.guowangwaveformanalysis.pojo.TableLayout;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xddf.usermodel.chart.*;
+import org.apache.poi.xwpf.usermodel.XWPFChart;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 由 TableLayout.Chart 编译出的图表计划。
+ * 模板中 {{chart:name}} 所在段落替换为 Word 原生图表（XDDF），数据直接取自解析后的工作表，
+ * 以矢量图形加内嵌数据表保存，在 Word 中仍可编辑，不再需要上传频谱截图。
+ */
+class ChartPlan {
+
+    private final List<ChartSpec> charts = new ArrayList<>();
+
+    private static class ChartSpec {
+        String name;
+        String title;
+        String[] categories;
+        String categoryTitle;
+        String valueTitle;
+        List<SeriesSpec> series = new ArrayList<>();
+    }
+
+    private static class SeriesSpec {
+        String name;
+        int sheet;
+        //[行, 列, 行, 列, ...]，与分类一一对应
+        int[] cells;
+        boolean line;
+    }
+
+    private ChartPlan() {
+    }
+
+    static ChartPlan compile(List<TableLayout.Chart> charts, List<String> sheetNames) {
+        ChartPlan plan = new ChartPlan();
+        for (TableLayout.Chart chart : charts) {
+            if (chart.getName() == null || chart.getSeries().isEmpty()) {
+                throw new IllegalStateException("图表配置有误（name、series 不能为空）");
+            }
+            ChartSpec spec = new ChartSpec();
+            spec.name = chart.getName();
+            spec.title = chart.getTitle();
+            spec.categoryTitle = chart.getCategoryTitle();
+            spec.valueTitle = chart.getValueTitle();
+            int[] harmonics = chart.getHarmonics();
+            if (harmonics != null) {
+                spec.categories = new String[harmonics[1] - harmonics[0] + 1];
+                for (int h = harmonics[0]; h <= harmonics[1]; h++) {
+                    spec.categories[h - harmonics[0]] = Integer.toString(h);
+                }
+            } else {
+                spec.categories = chart.getCategories().toArray(new String[0]);
+            }
+            for (TableLayout.ChartSeries series : chart.getSeries()) {
+                SeriesSpec s = new SeriesSpec();
+                s.name = series.getName();
+                s.line = series.isLine();
+                s.sheet = sheetNames.indexOf(series.getSheet());
+                if (s.sheet < 0) {
+                    throw new IllegalStateException("图表引用了未声明的工作表：" + series.getSheet());
+                }
+                int[] rows = series.getRows();
+                int[] cols = series.getCols();
+                s.cells = new int[(rows[1] - rows[0] + 1) * cols.length * 2];
+                int k = 0;
+                for (int row = rows[0]; row <= rows[1]; row++) {
+                    for (int col : cols) {
+                        s.cells[k++] = row;
+                        s.cells[k++] = col;
+                    }
+                }
+                if (s.cells.length / 2 != spec.categories.length) {
+                    throw new IllegalStateException("图表 " + spec.name + " 的数据个数与分类个数不一致：" + s.name);
+                }
+                spec.series.add(s);
+            }
+            plan.charts.add(spec);
+        }
+        return plan;
+    }
+
+    int getChartCount() {
+        return charts.size();
+    }
+
+    String placeholder(int chart) {
+        return "{{chart:" + charts.get(chart).name + "}}";
+    }
+
+    //在新建的空白图表中画出第 chart 个图表；缺失或非数字的单元格不画点
+    void draw(int chart, XWPFChart target, MeasurementMatrix[] sheets) {
+        ChartSpec spec = charts.get(chart);
+        int points = spec.categories.length;
+        if (spec.title != null) {
+            target.setTitleText(spec.title);
+            target.setTitleOverlay(false);
+        }
+        XDDFCategoryAxis categoryAxis = target.createCategoryAxis(AxisPosition.BOTTOM);
+        XDDFValueAxis valueAxis = target.createValueAxis(AxisPosition.LEFT);
+        valueAxis.setCrosses(AxisCrosses.AUTO_ZERO);
+        valueAxis.setCrossBetween(AxisCrossBetween.BETWEEN);
+        if (spec.categoryTitle != null) {
+            categoryAxis.setTitle(spec.categoryTitle);
+        }
+        if (spec.valueTitle != null) {
+            valueAxis.setTitle(spec.valueTitle);
+        }
+
+        // 内嵌数据表：第一列为分类，之后每个系列一列，第一行为系列名
+        XDDFDataSource<String> categories = XDDFDataSourcesFactory.fromArray(spec.categories,
+                target.formatRange(new CellRangeAddress(1, points, 0, 0)), 0);
+        XDDFBarChartData bars = null;
+        XDDFLineChartData lines = null;
+        for (int i = 0; i < spec.series.size(); i++) {
+            SeriesSpec s = spec.series.get(i);
+            int column = i + 1;
+            Double[] values = new Double[points];
+            MeasurementMatrix sheet = sheets[s.sheet];
+            for (int p = 0; p < points; p++) {
+                double v = sheet.value(s.cells[2 * p], s.cells[2 * p + 1]);
+                values[p] = Double.isNaN(v) ? null : v;
+            }
+            XDDFNumericalDataSource<Double> data = XDDFDataSourcesFactory.fromArray(values,
+                    target.formatRange(new CellRangeAddress(1, points, column, column)), column);
+            XDDFChartData.Series series;
+            if (s.line) {
+                if (lines == null) {
+                    lines = (XDDFLineChartData) target.createData(ChartTypes.LINE, categoryAxis, valueAxis);
+                }
+                XDDFLineChartData.Series line = (XDDFLineChartData.Series) lines.addSeries(categories, data);
+                line.setMarkerStyle(MarkerStyle.NONE);
+                line.setSmooth(false);
+                series = line;
+            } else {
+                if (bars == null) {
+                    bars = (XDDFBarChartData) target.createData(ChartTypes.BAR, categoryAxis, valueAxis);
+                    bars.setBarDirection(BarDirection.COL);
+                }
+                series = bars.addSeries(categories, data);
+            }
+            series.setTitle(s.name, target.setSheetTitle(s.name, column));
+        }
+        // 先画柱形再画折线，限值线压在柱形之上
+        if (bars != null) {
+            target.plot(bars);
+        }
+        if (lines != null) {
+            target.plot(lines);
+        }
+        target.getOrAddLegend().setPosition(LegendPosition.BOTTOM);
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import com.example.guowangwaveformanalysis.pojo.MeasurementMatrix;
+import com.example.guowangwaveformanalysis.pojo.TableLayout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 由表格映射中配置了 limitCol 的区域编译出的限值比较计划。
+ * 每个被比较的单元格对应数组中的一个下标，判定时先把测量值、限值收集到两个 double[]，
+ * 再用一个无分支的循环统一比较（upper、lower、abs 都化为 hi·x > limit 或 lo·x > limit），便于 JIT 向量化。
+ * 结果供填表时标红超标单元格，并生成 {{complianceSummary}} 的文字。
+ */
+class CompliancePlan {
+
+    //结论占位符
+    static final String SUMMARY_PLACEHOLDER = "complianceSummary";
+
+    //“±0.2”“0.20 / -0.20”等文字限值取第一个数的绝对值
+    private static final Pattern NUMBER = Pattern.compile("\\d+(\\.\\d+)?");
+
+    private final String[] tableTitles;
+    private final int count;
+    private final int[] sheet;
+    private final int[] srcRow;
+    private final int[] srcCol;
+    private final int[] limitCol;
+    private final double[] divisor;
+    private final double[] offset;
+    //x 为换算后的测量值：upper 时 hi = lo = 1，lower 时 hi = lo = -1，abs 时 hi = 1、lo = -1
+    private final double[] hi;
+    private final double[] lo;
+    private final int[] table;
+    //grid[t][row * gridCols[t] + col] 为第 t 张表该单元格的比较下标，不比较的为 -1
+    private final int[][] grid;
+    private final int[] gridCols;
+
+    private CompliancePlan(List<String> titles, List<int[]> cells, List<double[]> factors) {
+        this.tableTitles = titles.toArray(new String[0]);
+        this.count = cells.size();
+        sheet = new int[count];
+        srcRow = new int[count];
+        srcCol = new int[count];
+        limitCol = new int[count];
+        table = new int[count];
+        divisor = new double[count];
+        offset = new double[count];
+        hi = new double[count];
+        lo = new double[count];
+        int[] maxRow = new int[tableTitles.length];
+        int[] maxCol = new int[tableTitles.length];
+        for (int i = 0; i < count; i++) {
+            int[] c = cells.get(i);
+            double[] f = factors.get(i);
+            sheet[i] = c[0];
+            srcRow[i] = c[1];
+            srcCol[i] = c[2];
+            limitCol[i] = c[3];
+            table[i] = c[4];
+            divisor[i] = f[0];
+            offset[i] = f[1];
+            hi[i] = f[2];
+            lo[i] = f[3];
+            maxRow[c[4]] = Math.max(maxRow[c[4]], c[5] + 1);
+            maxCol[c[4]] = Math.max(maxCol[c[4]], c[6] + 1);
+        }
+        grid = new int[tableTitles.length][];
+        gridCols = maxCol;
+        for (int t = 0; t < grid.length; t++) {
+            grid[t] = new int[maxRow[t] * maxCol[t]];
+            Arrays.fill(grid[t], -1);
+        }
+        for (int i = 0; i < count; i++) {
+            int[] c = cells.get(i);
+            grid[c[4]][c[5] * gridCols[c[4]] + c[6]] = i;
+        }
+    }
+
+    static CompliancePlan compile(TableLayout layout) {
+        List<String> titles = new ArrayList<>();
+        //[工作表, 源行, 源列, 限值列, 表, 目标行, 目标列]
+        List<int[]> cells = new ArrayList<>();
+        //[divisor, offset, hi, lo]
+        List<double[]> factors = new ArrayList<>();
+        for (int t = 0; t < layout.getTables().size(); t++) {
+            TableLayout.Table table = layout.getTables().get(t);
+            titles.add(table.getTitle() == null ? "" : table.getTitle());
+            for (TableLayout.Mapping m : table.getMappings()) {
+                if (m.getLimitCol() == null) {
+                    continue;
+                }
+                int sheet = layout.getSheets().indexOf(m.getSheet());
+                double[] signs = signsOf(m.getLimitMode());
+                for (int row = m.getRows()[0]; row <= m.getRows()[1]; row++) {
+                    for (int j = 0; j < m.getCols().length; j++) {
+                        if (m.getCols()[j] == m.getLimitCol()) {
+                            continue;
+                        }
+                        cells.add(new int[]{sheet, row, m.getCols()[j], m.getLimitCol(), t,
+                                m.getDstRow() + row - m.getRows()[0], m.getDstCol() + j});
+                        factors.add(new double[]{m.getDivisor(), m.getOffset(), signs[0], signs[1]});
+                    }
+                }
+            }
+        }
+        return new CompliancePlan(titles, cells, factors);
+    }
+
+    private static double[] signsOf(String mode) {
+        switch (mode == null ? "upper" : mode.toLowerCase(Locale.ROOT)) {
+            case "upper":
+                return new double[]{1, 1};
+            case "lower":
+                return new double[]{-1, -1};
+            case "abs":
+                return new double[]{1, -1};
+            default:
+                throw new IllegalStateException("不支持的限值比较方式：" + mode);
+        }
+    }
+
+    //比较全部配置了限值的单元格，缺少测量值或限值的不计入
+    Result evaluate(MeasurementMatrix[] sheets) {
+        double[] values = new double[count];
+        double[] limits = new double[count];
+        for (int i = 0; i < count; i++) {
+            MeasurementMatrix matrix = sheets[sheet[i]];
+            values[i] = matrix.value(srcRow[i], srcCol[i]);
+            limits[i] = limitOf(matrix, srcRow[i], limitCol[i]);
+        }
+        boolean[] exceeded = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            double x = values[i] / divisor[i] + offset[i];
+            // 任一为 NaN 时比较结果为 false
+            exceeded[i] = hi[i] * x > limits[i] | lo[i] * x > limits[i];
+        }
+        int checked = 0;
+        int[] perTable = new int[tableTitles.length];
+        for (int i = 0; i < count; i++) {
+            if (!Double.isNaN(values[i]) && !Double.isNaN(limits[i])) {
+                checked++;
+            }
+            if (exceeded[i]) {
+                perTable[table[i]]++;
+            }
+        }
+        return new Result(exceeded, checked, perTable);
+    }
+
+    //限值单元格：数值取绝对值，文字取第一个数
+    private static double limitOf(MeasurementMatrix matrix, int row, int col) {
+        double limit = matrix.value(row, col);
+        if (!Double.isNaN(limit)) {
+            return Math.abs(limit);
+        }
+        String text = matrix.text(row, col);
+        if (text == null) {
+            return Double.NaN;
+        }
+        Matcher m = NUMBER.matcher(text);
+        return m.find() ? Double.parseDouble(m.group()) : Double.NaN;
+    }
+
+    /**
+     * 一份报告的比较结果
+     */
+    final class Result {
+        private final boolean[] exceeded;
+        private final int checked;
+        private final int[] perTable;
+
+        private Result(boolean[] exceeded, int checked, int[] perTable) {
+            this.exceeded = exceeded;
+            this.checked = checked;
+            this.perTable = perTable;
+        }
+
+        //第 t 张表的目标单元格是否超出限值
+        boolean exceeded(int t, int row, int col) {
+            if (t >= grid.length || col >= gridCols[t]) {
+                return false;
+            }
+            int cell = row * gridCols[t] + col;
+            return cell < grid[t].length && grid[t][cell] >= 0 && exceeded[grid[t][cell]];
+        }
+
+        int getChecked() {
+            return checked;
+        }
+
+        int getExceededCount() {
+            int total = 0;
+            for (int n : perTable) {
+                total += n;
+            }
+            return total;
+        }
+
+        //如“经比对，144 项测量值中有 3 项超出限值（谐波电压统计表 2 项，谐波电流统计表 1 项），已在表中标红。”
+        String summary() {
+            if (checked == 0) {
+                return "";
+            }
+            int total = getExceededCount();
+            if (total == 0) {
+                return "经比对，" + checked + " 项测量值均未超出限值。";
+            }
+            StringBuilder sb = new StringBuilder("经比对，").append(checked).append(" 项测量值中有 ")
+                    .append(total).append(" 项超出限值（");
+            boolean first = true;
+            for (int t = 0; t < perTable.length; t++) {
+                if (perTable[t] == 0) {
+                    continue;
+                }
+                if (!first) {
+                    sb.append("，");
+                }
+                sb.append(tableTitles[t]).append(' ').append(perTable[t]).append(" 项");
+                first = false;
+            }
+            return sb.append("），已在表中标红。").toString();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import com.example.guowangwaveformanalysis.pojo.ExcelSheetData;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 数据集缓存：上传的Excel解析一次后以二进制形式保存在内存中，之后只改字段、仪器重新生成报告时按数据集ID取出，
+ * 不再上传、解析。每次使用后重新计时，超过 ttl 未用或总大小超过上限时按最久未用淘汰。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "report.dataset.enabled", havingValue = "true", matchIfMissing = true)
+class DatasetCache {
+
+    private final long ttlMillis;
+    private final long maxBytes;
+
+    //按访问顺序排列；过期时间为最后使用时间加 ttl，所以最久未用的也最先过期
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    private static class Entry {
+        final byte[] data;
+        long expiresAt;
+
+        Entry(byte[] data, long expiresAt) {
+            this.data = data;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    DatasetCache(@Value("${report.dataset.ttl-minutes:30}") long ttlMinutes,
+                 @Value("${report.dataset.max-bytes:67108864}") long maxBytes) {
+        this.ttlMillis = ttlMinutes * 60_000;
+        this.maxBytes = maxBytes;
+    }
+
+    //保存解析结果，返回数据集ID
+    String put(ExcelSheetData data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            data.writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String id = UUID.randomUUID().toString().replace("-", "");
+        byte[] encoded = bytes.toByteArray();
+        synchronized (entries) {
+            long now = System.currentTimeMillis();
+            entries.put(id, new Entry(encoded, now + ttlMillis));
+            cachedBytes += encoded.length;
+            evict(now);
+        }
+        log.debug("数据集 {} 已缓存（{} 字节）", id, encoded.length);
+        return id;
+    }
+
+    //取出解析结果，不存在或已过期时返回 null
+    ExcelSheetData get(String id) {
+        byte[] encoded;
+        synchronized (entries) {
+            long now = System.currentTimeMillis();
+            evict(now);
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                return null;
+            }
+            entry.expiresAt = now + ttlMillis;
+            encoded = entry.data;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+            return ExcelSheetData.readFrom(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //淘汰已过期的，总大小仍超过上限时继续淘汰最久未用的，至少保留最近的一份
+    private void evict(long now) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            if (eldest.expiresAt > now && (cachedBytes <= maxBytes || entries.size() <= 1)) {
+                break;
+            }
+            it.remove();
+            cachedBytes -= eldest.data.length;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 定点小数格式化，结果与 new BigDecimal(value).setScale(scale, HALF_UP).toString() 完全一致。
+ * 按 double 的精确二进制值舍入：先算出 |value| × 10^scale 的整数部分，再用 Math.fma 精确判断余数与 0.5 的大小，
+ * 数字写入实例自带的字符缓冲区，不再为每个单元格创建 BigDecimal。
+ * 超出快速路径范围（scale 不在 0~6、数值过大、NaN/无穷）时仍使用 BigDecimal。
+ * 实例不是线程安全的，每个填表线程各用一个。
+ */
+final class DecimalFormatter {
+
+    //scale 超过 6 时 BigDecimal 对很小的数会输出科学计数法，交给 BigDecimal 处理
+    static final int MAX_FAST_SCALE = 6;
+    //放大后的整数部分需小于 2^51，校正、进位后 n + 0.5 仍能用 double 精确表示
+    private static final double MAX_FAST_SCALED = 0x1p51;
+    private static final double[] POWERS_OF_TEN = {1, 10, 100, 1e3, 1e4, 1e5, 1e6};
+
+    //符号 + 16 位整数 + 小数点 + 6 位小数
+    private final char[] buffer = new char[32];
+
+    String format(double value, int scale) {
+        if (scale < 0 || scale > MAX_FAST_SCALE) {
+            return slowFormat(value, scale);
+        }
+        double magnitude = Math.abs(value);
+        double power = POWERS_OF_TEN[scale];
+        double scaled = magnitude * power;
+        if (!(scaled < MAX_FAST_SCALED)) {
+            // 也包括 NaN，由 BigDecimal 抛出与原来相同的异常
+            return slowFormat(value, scale);
+        }
+        // 乘积经过一次舍入，floor 可能偏差 1，用 fma 按精确乘积校正
+        long n = (long) scaled;
+        if (Math.fma(magnitude, power, -n) < 0) {
+            n--;
+        } else if (Math.fma(magnitude, power, -(n + 1)) >= 0) {
+            n++;
+        }
+        // HALF_UP：精确余数 >= 0.5 时进位
+        if (Math.fma(magnitude, power, -(n + 0.5)) >= 0) {
+            n++;
+        }
+        // BigDecimal 没有负零，舍入为 0 时不带符号
+        boolean negative = value < 0 && n != 0;
+        return write(n, scale, negative);
+    }
+
+    private String write(long unscaled, int scale, boolean negative) {
+        char[] buf = buffer;
+        int pos = buf.length;
+        for (int i = 0; i < scale; i++) {
+            buf[--pos] = (char) ('0' + unscaled % 10);
+            unscaled /= 10;
+        }
+        if (scale > 0) {
+            buf[--pos] = '.';
+        }
+        do {
+            buf[--pos] = (char) ('0' + unscaled % 10);
+            unscaled /= 10;
+        } while (unscaled != 0);
+        if (negative) {
+            buf[--pos] = '-';
+        }
+        return new String(buf, pos, buf.length - pos);
+    }
+
+    static String slowFormat(double value, int scale) {
+        return new BigDecimal(value).setScale(scale, RoundingMode.HALF_UP).toString();
+    }
+}
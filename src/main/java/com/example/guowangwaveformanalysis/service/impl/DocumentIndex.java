@@ -0,0 +1,81 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import org.apache.poi.xwpf.usermodel.BodyElementType;
+import org.apache.poi.xwpf.usermodel.IBodyElement;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文档位置索引：一次遍历正文，记录 {{imageN}}、{{chart:name}} 所在段落及其下一段（图名），以及每张表格前的标题段落。
+ * 插入图片、图表及设置表格标题时直接查表，不再逐段扫描正文。
+ * 保存的是段落对象本身，之后插入新段落不影响已有条目。
+ */
+final class DocumentIndex {
+
+    //插图占位符：上传的图片、生成的图表
+    private static final String[] FIGURE_PREFIXES = {"{{image", "{{chart:"};
+
+    //占位符 -> [占位符段落, 图名段落（可能为 null）]
+    private final Map<String, XWPFParagraph[]> images = new HashMap<>();
+    //表格 -> 紧邻其前的段落，没有时不在表中
+    private final Map<XWPFTable, XWPFParagraph> tableTitles = new IdentityHashMap<>();
+
+    private DocumentIndex() {
+    }
+
+    static DocumentIndex build(XWPFDocument doc) {
+        DocumentIndex index = new DocumentIndex();
+        List<XWPFParagraph> paragraphs = doc.getParagraphs();
+        for (int i = 0; i < paragraphs.size(); i++) {
+            String text = paragraphs.get(i).getText();
+            if (text == null) {
+                continue;
+            }
+            // 同一占位符出现多次时只取第一处
+            for (String prefix : FIGURE_PREFIXES) {
+                int start = text.indexOf(prefix);
+                while (start >= 0) {
+                    int end = text.indexOf("}}", start + prefix.length());
+                    if (end < 0) {
+                        break;
+                    }
+                    XWPFParagraph caption = i + 1 < paragraphs.size() ? paragraphs.get(i + 1) : null;
+                    index.images.putIfAbsent(text.substring(start, end + 2), new XWPFParagraph[]{paragraphs.get(i), caption});
+                    start = text.indexOf(prefix, end + 2);
+                }
+            }
+        }
+        List<IBodyElement> bodyElements = doc.getBodyElements();
+        for (int i = 1; i < bodyElements.size(); i++) {
+            IBodyElement element = bodyElements.get(i);
+            IBodyElement previous = bodyElements.get(i - 1);
+            if (element.getElementType() == BodyElementType.TABLE && previous.getElementType() == BodyElementType.PARAGRAPH) {
+                index.tableTitles.put((XWPFTable) element, (XWPFParagraph) previous);
+            }
+        }
+        return index;
+    }
+
+    //占位符所在段落，模板中没有时为 null
+    XWPFParagraph imageParagraph(String placeholder) {
+        XWPFParagraph[] entry = images.get(placeholder);
+        return entry == null ? null : entry[0];
+    }
+
+    //占位符段落的下一段（图名），没有时为 null
+    XWPFParagraph captionParagraph(String placeholder) {
+        XWPFParagraph[] entry = images.get(placeholder);
+        return entry == null ? null : entry[1];
+    }
+
+    //表格前的标题段落，表格前不是段落时为 null
+    XWPFParagraph tableTitle(XWPFTable table) {
+        return tableTitles.get(table);
+    }
+}
@@ -0,0 +1,349 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import com.example.guowangwaveformanalysis.pojo.HistoryPoint;
+import com.example.guowangwaveformanalysis.service.HistoryService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * 历史测量库：每次监测解析出的统计值按列保存在本地的内存映射文件中，供跨报告的趋势、排名查询。
+ * 目录下 columns.txt 按顺序登记列名（如 UA_H5.p95），campaigns.jsonl 每行一次监测（测试地点、监测位置、起止日期）；
+ * 数值分段存放，values-N.dat 保存第 N×1024 起的 1024 次监测，段内按列连续排列，查询一列时只顺序读取该列的一块内存。
+ * 段文件只映射到已登记的列数（按 64 列取整），列增加时重新映射，不依赖文件系统的稀疏文件支持。
+ * 监测位置、测试地点、开始日期的索引在启动时由 campaigns.jsonl 重建。
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "report.history.enabled", havingValue = "true", matchIfMissing = true)
+public class HistoryServiceImpl implements HistoryService {
+
+    //每段容纳的监测次数、列数上限；段文件的映射大小按 COLUMN_STEP 列为单位增长
+    private static final int SEGMENT_CAMPAIGNS = 1024;
+    private static final int MAX_COLUMNS = 1024;
+    private static final int COLUMN_STEP = 64;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Path dir;
+    private final Path columnsFile;
+    private final Path campaignsFile;
+
+    private final List<String> columnNames = new ArrayList<>();
+    private final Map<String, Integer> columnIndex = new HashMap<>();
+    private final List<Campaign> campaigns = new ArrayList<>();
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    //当前段文件映射覆盖的列数
+    private int mappedColumns;
+    //索引：测试地点+监测位置+起止日期 → 监测记录号，及按监测位置、测试地点、开始日期的记录号列表
+    private final Map<String, Integer> byKey = new HashMap<>();
+    private final Map<String, List<Integer>> byPosition = new HashMap<>();
+    private final Map<String, List<Integer>> bySite = new HashMap<>();
+    private final TreeMap<String, List<Integer>> byStart = new TreeMap<>();
+
+    /**
+     * 一次监测，campaigns.jsonl 的一行
+     */
+    @Data
+    static class Campaign {
+        private int id;
+        private String site;
+        private String position;
+        //yyyy-MM-dd，未知时为 null
+        private String start;
+        private String end;
+        private long recordedAt;
+    }
+
+    HistoryServiceImpl(@Value("${report.history.dir:history}") String dir) {
+        this.dir = Paths.get(dir).toAbsolutePath().normalize();
+        this.columnsFile = this.dir.resolve("columns.txt");
+        this.campaignsFile = this.dir.resolve("campaigns.jsonl");
+    }
+
+    @PostConstruct
+    synchronized void load() throws IOException {
+        Files.createDirectories(dir);
+        if (Files.exists(columnsFile)) {
+            for (String name : Files.readAllLines(columnsFile, StandardCharsets.UTF_8)) {
+                if (!name.isBlank()) {
+                    columnIndex.put(columnKey(name), columnNames.size());
+                    columnNames.add(name);
+                }
+            }
+        }
+        if (Files.exists(campaignsFile)) {
+            for (String line : Files.readAllLines(campaignsFile, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Campaign campaign;
+                try {
+                    campaign = OBJECT_MAPPER.readValue(line, Campaign.class);
+                } catch (IOException e) {
+                    // 只可能是写了一半的最后一行
+                    log.warn("跳过无法解析的历史监测记录：{}", line);
+                    continue;
+                }
+                if (campaign.getId() != campaigns.size()) {
+                    throw new IllegalStateException("历史监测记录号不连续：" + campaign.getId());
+                }
+                index(campaign);
+            }
+        }
+        mappedColumns = roundUpColumns(columnNames.size());
+        for (int s = 0; s * SEGMENT_CAMPAIGNS < campaigns.size(); s++) {
+            segment(s);
+        }
+        log.info("历史测量库：{}（{} 次监测，{} 列）", dir, campaigns.size(), columnNames.size());
+    }
+
+    @PreDestroy
+    synchronized void flush() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public synchronized void record(String site, String position, LocalDate start, LocalDate end,
+                                    String[] columns, double[] values) throws IOException {
+        boolean empty = true;
+        for (double value : values) {
+            empty &= Double.isNaN(value);
+        }
+        if (empty) {
+            return;
+        }
+        String startText = start == null ? null : start.toString();
+        String endText = end == null ? null : end.toString();
+        Integer existing = byKey.get(keyOf(site, position, startText, endText));
+        int id = existing == null ? campaigns.size() : existing;
+
+        int[] target = new int[columns.length];
+        List<String> added = new ArrayList<>();
+        for (int i = 0; i < columns.length; i++) {
+            Integer column = columnIndex.get(columnKey(columns[i]));
+            if (column == null) {
+                if (columnNames.size() >= MAX_COLUMNS) {
+                    throw new IllegalStateException("历史测量库列数超过上限 " + MAX_COLUMNS);
+                }
+                column = columnNames.size();
+                columnIndex.put(columnKey(columns[i]), column);
+                columnNames.add(columns[i]);
+                added.add(columns[i]);
+            }
+            target[i] = column;
+        }
+        if (!added.isEmpty()) {
+            remap(columnNames.size());
+            // 新列在已有监测中没有值
+            for (int column = columnNames.size() - added.size(); column < columnNames.size(); column++) {
+                for (int c = 0; c < campaigns.size(); c++) {
+                    put(c, column, Double.NaN);
+                }
+            }
+            Files.write(columnsFile, added, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        // 先写数值再登记监测，中途失败时多出的数值不会被读到
+        for (int column = 0; column < columnNames.size(); column++) {
+            put(id, column, Double.NaN);
+        }
+        for (int i = 0; i < columns.length; i++) {
+            put(id, target[i], values[i]);
+        }
+        if (existing != null) {
+            return;
+        }
+        Campaign campaign = new Campaign();
+        campaign.setId(id);
+        campaign.setSite(site);
+        campaign.setPosition(position);
+        campaign.setStart(startText);
+        campaign.setEnd(endText);
+        campaign.setRecordedAt(System.currentTimeMillis());
+        Files.write(campaignsFile, (OBJECT_MAPPER.writeValueAsString(campaign) + "\n").getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        index(campaign);
+    }
+
+    @Override
+    public synchronized List<String> columns() {
+        return new ArrayList<>(columnNames);
+    }
+
+    @Override
+    public synchronized List<HistoryPoint> trend(String column, String position, String site, LocalDate from, LocalDate to) {
+        int col = requireColumn(column);
+        List<HistoryPoint> points = new ArrayList<>();
+        for (int id : byPosition.getOrDefault(position, Collections.emptyList())) {
+            Campaign campaign = campaigns.get(id);
+            double value = get(id, col);
+            if (!Double.isNaN(value) && matches(campaign, site, from, to)) {
+                points.add(pointOf(campaign, value));
+            }
+        }
+        points.sort(Comparator.comparing(HistoryPoint::getStart, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                .thenComparingInt(HistoryPoint::getCampaignId));
+        return points;
+    }
+
+    @Override
+    public synchronized List<HistoryPoint> top(String column, int n, String site, LocalDate from, LocalDate to) {
+        int col = requireColumn(column);
+        //监测位置 → 范围内值最大的一次监测
+        Map<String, Integer> best = new HashMap<>();
+        for (int id : candidates(site, from, to)) {
+            Campaign campaign = campaigns.get(id);
+            double value = get(id, col);
+            if (Double.isNaN(value) || !matches(campaign, site, from, to)) {
+                continue;
+            }
+            Integer current = best.get(campaign.getPosition());
+            if (current == null || value > get(current, col)) {
+                best.put(campaign.getPosition(), id);
+            }
+        }
+        List<HistoryPoint> points = new ArrayList<>(best.size());
+        for (int id : best.values()) {
+            points.add(pointOf(campaigns.get(id), get(id, col)));
+        }
+        points.sort(Comparator.comparingDouble(HistoryPoint::getValue).reversed()
+                .thenComparingInt(HistoryPoint::getCampaignId));
+        return points.size() > n ? new ArrayList<>(points.subList(0, Math.max(n, 0))) : points;
+    }
+
+    //有地点时只看该地点的监测，只有日期范围时从开始日期索引取，否则看全部
+    private Iterable<Integer> candidates(String site, LocalDate from, LocalDate to) {
+        if (site != null) {
+            return bySite.getOrDefault(site, Collections.emptyList());
+        }
+        if (from == null && to == null) {
+            List<Integer> all = new ArrayList<>(campaigns.size());
+            for (int id = 0; id < campaigns.size(); id++) {
+                all.add(id);
+            }
+            return all;
+        }
+        NavigableMap<String, List<Integer>> range = byStart;
+        if (from != null) {
+            range = range.tailMap(from.toString(), true);
+        }
+        if (to != null) {
+            range = range.headMap(to.toString(), true);
+        }
+        List<Integer> ids = new ArrayList<>();
+        range.values().forEach(ids::addAll);
+        return ids;
+    }
+
+    //日期范围按开始日期判断，有范围时开始日期未知的监测不计入
+    private static boolean matches(Campaign campaign, String site, LocalDate from, LocalDate to) {
+        if (site != null && !site.equals(campaign.getSite())) {
+            return false;
+        }
+        String start = campaign.getStart();
+        if (from != null && (start == null || start.compareTo(from.toString()) < 0)) {
+            return false;
+        }
+        return to == null || (start != null && start.compareTo(to.toString()) <= 0);
+    }
+
+    private int requireColumn(String column) {
+        Integer index = column == null ? null : columnIndex.get(columnKey(column));
+        if (index == null) {
+            throw new IllegalArgumentException("历史测量库中没有该列：" + column);
+        }
+        return index;
+    }
+
+    private void index(Campaign campaign) {
+        int id = campaign.getId();
+        campaigns.add(campaign);
+        byKey.put(keyOf(campaign.getSite(), campaign.getPosition(), campaign.getStart(), campaign.getEnd()), id);
+        byPosition.computeIfAbsent(campaign.getPosition(), k -> new ArrayList<>()).add(id);
+        bySite.computeIfAbsent(campaign.getSite(), k -> new ArrayList<>()).add(id);
+        if (campaign.getStart() != null) {
+            byStart.computeIfAbsent(campaign.getStart(), k -> new ArrayList<>()).add(id);
+        }
+    }
+
+    private double get(int campaign, int column) {
+        return segments.get(campaign / SEGMENT_CAMPAIGNS).getDouble(offsetOf(campaign, column));
+    }
+
+    private void put(int campaign, int column, double value) throws IOException {
+        segment(campaign / SEGMENT_CAMPAIGNS).putDouble(offsetOf(campaign, column), value);
+    }
+
+    //段内按列排列：第 column 列占 [column × 1024, column × 1024 + 1024) 个 double
+    private static int offsetOf(int campaign, int column) {
+        return (column * SEGMENT_CAMPAIGNS + campaign % SEGMENT_CAMPAIGNS) * Double.BYTES;
+    }
+
+    private MappedByteBuffer segment(int s) throws IOException {
+        while (segments.size() <= s) {
+            segments.add(map(segments.size()));
+        }
+        return segments.get(s);
+    }
+
+    //列数超过映射范围时，把已有段按新的列数重新映射，原映射由 GC 释放
+    private void remap(int columns) throws IOException {
+        if (columns <= mappedColumns) {
+            return;
+        }
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        mappedColumns = roundUpColumns(columns);
+        for (int s = 0; s < segments.size(); s++) {
+            segments.set(s, map(s));
+        }
+    }
+
+    private MappedByteBuffer map(int s) throws IOException {
+        Path file = dir.resolve("values-" + s + ".dat");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) SEGMENT_CAMPAIGNS * mappedColumns * Double.BYTES);
+        }
+    }
+
+    private static int roundUpColumns(int columns) {
+        return Math.max(COLUMN_STEP, (columns + COLUMN_STEP - 1) / COLUMN_STEP * COLUMN_STEP);
+    }
+
+    private static HistoryPoint pointOf(Campaign campaign, double value) {
+        return new HistoryPoint(campaign.getId(), campaign.getSite(), campaign.getPosition(),
+                campaign.getStart(), campaign.getEnd(), value);
+    }
+
+    private static String keyOf(String site, String position, String start, String end) {
+        return site + '\u0000' + position + '\u0000' + start + '\u0000' + end;
+    }
+
+    //列名中统计目标不区分大小写，统计量用小写，如 ua_h5.P95 → UA_H5.p95
+    static String columnKey(String column) {
+        int dot = column.lastIndexOf('.');
+        String target = SeriesPlan.normalize(dot < 0 ? column : column.substring(0, dot));
+        return dot < 0 ? target : target + column.substring(dot).toLowerCase(Locale.ROOT);
+    }
+}
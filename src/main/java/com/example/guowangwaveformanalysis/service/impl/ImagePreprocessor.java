@@ -0,0 +1,213 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * 插图预处理：按显示尺寸和打印分辨率缩小图片并重新编码（波形图等 PNG 仍为 PNG，照片为 JPEG），
+ * 内容相同的图片只处理一次。处理结果相同的图片，POI 按校验和在文档包中只保存一份。
+ */
+@Slf4j
+@Component
+class ImagePreprocessor {
+
+    //Word 中 1 像素按 96 DPI 计算
+    private static final int SCREEN_DPI = 96;
+
+    @Autowired
+    private ForkJoinPool reportForkJoinPool;
+
+    //关闭后按原图嵌入
+    @Value("${report.image.enabled:true}")
+    private boolean enabled = true;
+    //打印分辨率，决定缩放后的像素数
+    @Value("${report.image.dpi:200}")
+    private int dpi = 200;
+    @Value("${report.image.jpeg-quality:0.85}")
+    private float jpegQuality = 0.85f;
+
+    //影响处理结果的参数，供结果缓存区分配置
+    String settings() {
+        return "image=" + enabled + "," + dpi + "," + jpegQuality;
+    }
+
+    /**
+     * 处理后的图片
+     */
+    static class PreparedImage {
+        final byte[] data;
+        final int pictureType;
+
+        PreparedImage(byte[] data, int pictureType) {
+            this.data = data;
+            this.pictureType = pictureType;
+        }
+    }
+
+    /**
+     * 并行处理一组图片，结果与输入一一对应，读取失败的位置为 null
+     * @param images   上传的图片
+     * @param types    各图片的 XWPFDocument.PICTURE_TYPE_*
+     * @param widthPx  在文档中的显示宽度（像素）
+     * @param heightPx 在文档中的显示高度（像素）
+     */
+    List<PreparedImage> prepareAll(MultipartFile[] images, int[] types, int widthPx, int heightPx) {
+        List<PreparedImage> result = new ArrayList<>(Collections.nCopies(images.length, null));
+        // 按内容哈希去重，相同图片只解码、缩放一次
+        Map<String, List<Integer>> positions = new LinkedHashMap<>();
+        Map<String, Callable<PreparedImage>> tasks = new LinkedHashMap<>();
+        for (int i = 0; i < images.length; i++) {
+            try {
+                // 哈希按流计算，原图只在处理任务中读取，不在这里整张读入内存
+                MultipartFile image = images[i];
+                String key = sha256(image) + ":" + types[i];
+                int type = types[i];
+                positions.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+                tasks.putIfAbsent(key, () -> prepare(image, type, widthPx, heightPx));
+            } catch (IOException e) {
+                log.warn("图片读取失败: {}", e.getMessage());
+            }
+        }
+        List<String> keys = new ArrayList<>(tasks.keySet());
+        List<Future<PreparedImage>> futures = reportForkJoinPool.invokeAll(new ArrayList<>(tasks.values()));
+        for (int k = 0; k < keys.size(); k++) {
+            PreparedImage prepared;
+            try {
+                prepared = futures.get(k).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("图片处理被中断", e);
+            } catch (ExecutionException e) {
+                log.warn("图片处理失败: {}", e.getCause().getMessage());
+                continue;
+            }
+            for (int position : positions.get(keys.get(k))) {
+                result.set(position, prepared);
+            }
+        }
+        return result;
+    }
+
+    //处理单张图片，无法解码（如 CMYK JPEG、不支持的格式、文件截断）、处理失败或处理后反而更大时保留原图；
+    //只有上传本身读取失败时抛出 IOException
+    PreparedImage prepare(MultipartFile image, int pictureType, int widthPx, int heightPx) throws IOException {
+        if (!enabled) {
+            return new PreparedImage(image.getBytes(), pictureType);
+        }
+        PreparedImage processed;
+        try {
+            processed = process(image, pictureType, widthPx, heightPx);
+        } catch (IOException | RuntimeException e) {
+            log.warn("图片无法处理，按原图嵌入: {} {}", image.getOriginalFilename(), e.getMessage());
+            processed = null;
+        }
+        return processed != null ? processed : new PreparedImage(image.getBytes(), pictureType);
+    }
+
+    //解码、缩放、重新编码，不需要处理或处理后不比原图小时返回 null
+    private PreparedImage process(MultipartFile image, int pictureType, int widthPx, int heightPx) throws IOException {
+        BufferedImage source;
+        try (InputStream in = image.getInputStream()) {
+            source = ImageIO.read(in);
+        }
+        if (source == null) {
+            return null;
+        }
+        int targetWidth = Math.min(source.getWidth(), widthPx * dpi / SCREEN_DPI);
+        int targetHeight = Math.min(source.getHeight(), heightPx * dpi / SCREEN_DPI);
+        boolean reencodable = pictureType == XWPFDocument.PICTURE_TYPE_PNG || pictureType == XWPFDocument.PICTURE_TYPE_JPEG;
+        if (reencodable && targetWidth == source.getWidth() && targetHeight == source.getHeight()) {
+            return null;
+        }
+
+        boolean jpeg = pictureType == XWPFDocument.PICTURE_TYPE_JPEG;
+        BufferedImage scaled = resize(source, targetWidth, targetHeight, !jpeg && source.getColorModel().hasAlpha());
+        byte[] encoded = jpeg ? encodeJpeg(scaled) : encodePng(scaled);
+        if (reencodable && encoded.length >= image.getSize()) {
+            return null;
+        }
+        return new PreparedImage(encoded, jpeg ? XWPFDocument.PICTURE_TYPE_JPEG : XWPFDocument.PICTURE_TYPE_PNG);
+    }
+
+    //逐级减半后再双线性缩放到目标尺寸，大倍数缩小时细线（波形）不丢失
+    private static BufferedImage resize(BufferedImage source, int width, int height, boolean alpha) {
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+        do {
+            w = Math.max(width, w / 2);
+            h = Math.max(height, h / 2);
+            BufferedImage next = new BufferedImage(w, h, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (w != width || h != height);
+        return current;
+    }
+
+    private static byte[] encodePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static String sha256(MultipartFile image) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = new DigestInputStream(image.getInputStream(), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
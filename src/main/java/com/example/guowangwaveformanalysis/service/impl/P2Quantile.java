@@ -0,0 +1,106 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import java.util.Arrays;
+
+/**
+ * P² 分位数估计（Jain & Chlamtac, 1985）：只保存 5 个标记点，单遍处理任意长度的序列，内存固定。
+ * 前 5 个样本按最近秩法精确计算，之后按抛物线插值调整标记点高度。
+ */
+final class P2Quantile {
+
+    private final double p;
+    //标记点高度、实际位置、期望位置及期望位置增量
+    private final double[] q = new double[5];
+    private final int[] n = new int[5];
+    private final double[] desired = new double[5];
+    private final double[] increment = new double[5];
+    private long count;
+
+    P2Quantile(double p) {
+        if (!(p > 0 && p < 1)) {
+            throw new IllegalArgumentException("分位数需在 (0, 1) 之间：" + p);
+        }
+        this.p = p;
+        increment[1] = p / 2;
+        increment[2] = p;
+        increment[3] = (1 + p) / 2;
+        increment[4] = 1;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    void add(double x) {
+        if (count < 5) {
+            q[(int) count++] = x;
+            if (count == 5) {
+                Arrays.sort(q);
+                for (int i = 0; i < 5; i++) {
+                    n[i] = i + 1;
+                }
+                desired[0] = 1;
+                desired[1] = 1 + 2 * p;
+                desired[2] = 1 + 4 * p;
+                desired[3] = 3 + 2 * p;
+                desired[4] = 5;
+            }
+            return;
+        }
+        count++;
+
+        int k;
+        if (x < q[0]) {
+            q[0] = x;
+            k = 0;
+        } else if (x >= q[4]) {
+            q[4] = x;
+            k = 3;
+        } else {
+            k = 0;
+            while (x >= q[k + 1]) {
+                k++;
+            }
+        }
+        for (int i = k + 1; i < 5; i++) {
+            n[i]++;
+        }
+        for (int i = 0; i < 5; i++) {
+            desired[i] += increment[i];
+        }
+
+        for (int i = 1; i <= 3; i++) {
+            double d = desired[i] - n[i];
+            if ((d >= 1 && n[i + 1] - n[i] > 1) || (d <= -1 && n[i - 1] - n[i] < -1)) {
+                int step = d > 0 ? 1 : -1;
+                double candidate = parabolic(i, step);
+                if (q[i - 1] < candidate && candidate < q[i + 1]) {
+                    q[i] = candidate;
+                } else {
+                    q[i] = q[i] + step * (q[i + step] - q[i]) / (n[i + step] - n[i]);
+                }
+                n[i] += step;
+            }
+        }
+    }
+
+    private double parabolic(int i, int step) {
+        return q[i] + (double) step / (n[i + 1] - n[i - 1])
+                * ((n[i] - n[i - 1] + step) * (q[i + 1] - q[i]) / (n[i + 1] - n[i])
+                + (n[i + 1] - n[i] - step) * (q[i] - q[i - 1]) / (n[i] - n[i - 1]));
+    }
+
+    //当前估计值，没有样本时为 NaN
+    double value() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (count <= 5) {
+            double[] sorted = Arrays.copyOf(q, (int) count);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(p * count);
+            return sorted[Math.max(rank, 1) - 1];
+        }
+        return q[2];
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFFooter;
+import org.apache.poi.xwpf.usermodel.XWPFHeader;
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlObject;
+
+import javax.xml.namespace.QName;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {{key}} 占位符替换。
+ * 每个段落只把其中的文字节点（w:t）拼接后扫描一遍，占位符通过哈希表查值；
+ * 被 Word 拆到多个 run 里的占位符也能识别，替换值写入占位符起始所在的文字节点，其余部分从后续节点中删去，
+ * 各 run 的格式保持不变。覆盖正文、表格（含嵌套表格）、文本框以及页眉页脚，未知的占位符原样保留。
+ */
+class PlaceholderReplacer {
+
+    private static final String W_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+    private static final QName W_T = new QName(W_NS, "t");
+    private static final QName XML_SPACE = new QName("http://www.w3.org/XML/1998/namespace", "space");
+    //所有段落（含表格单元格、文本框中的段落）
+    private static final String ALL_PARAGRAPHS = "declare namespace w='" + W_NS + "' .//w:p";
+
+    private final Map<String, String> values;
+
+    PlaceholderReplacer(Map<String, String> values) {
+        this.values = values;
+    }
+
+    //替换整个文档中的占位符，返回替换的个数
+    int replace(XWPFDocument doc) {
+        int count = replaceIn(doc.getDocument().getBody());
+        for (XWPFHeader header : doc.getHeaderList()) {
+            count += replaceIn(header._getHdrFtr());
+        }
+        for (XWPFFooter footer : doc.getFooterList()) {
+            count += replaceIn(footer._getHdrFtr());
+        }
+        return count;
+    }
+
+    private int replaceIn(XmlObject part) {
+        int count = 0;
+        List<XmlObject> texts = new ArrayList<>();
+        StringBuilder buffer = new StringBuilder();
+        for (XmlObject paragraph : part.selectPath(ALL_PARAGRAPHS)) {
+            texts.clear();
+            try (XmlCursor cursor = paragraph.newCursor()) {
+                collectTexts(cursor, texts);
+            }
+            count += replaceInParagraph(texts, buffer);
+        }
+        return count;
+    }
+
+    //按文档顺序收集段落自身的文字节点；文本框里的段落由外层 .//w:p 单独处理，这里跳过
+    private static void collectTexts(XmlCursor cursor, List<XmlObject> out) {
+        if (!cursor.toFirstChild()) {
+            return;
+        }
+        do {
+            QName name = cursor.getName();
+            if (W_T.equals(name)) {
+                out.add(cursor.getObject());
+            } else if (!"txbxContent".equals(name.getLocalPart()) && !"pPr".equals(name.getLocalPart())
+                    && !"rPr".equals(name.getLocalPart())) {
+                collectTexts(cursor, out);
+            }
+        } while (cursor.toNextSibling());
+        cursor.toParent();
+    }
+
+    private int replaceInParagraph(List<XmlObject> texts, StringBuilder buffer) {
+        if (texts.isEmpty()) {
+            return 0;
+        }
+        // 拼接段落文字，记录每个文字节点的起始位置
+        buffer.setLength(0);
+        int[] starts = new int[texts.size() + 1];
+        for (int i = 0; i < texts.size(); i++) {
+            starts[i] = buffer.length();
+            try (XmlCursor cursor = texts.get(i).newCursor()) {
+                buffer.append(cursor.getTextValue());
+            }
+        }
+        starts[texts.size()] = buffer.length();
+
+        // 单遍扫描找出可替换的占位符：tokens 依次存放 [起, 止) 位置，replacements 存放替换值
+        List<int[]> tokens = null;
+        List<String> replacements = null;
+        int from = 0;
+        while (true) {
+            int open = buffer.indexOf("{{", from);
+            if (open < 0) {
+                break;
+            }
+            int close = buffer.indexOf("}}", open + 2);
+            if (close < 0) {
+                break;
+            }
+            String value = values.get(buffer.substring(open + 2, close));
+            if (value == null) {
+                from = open + 1;
+                continue;
+            }
+            if (tokens == null) {
+                tokens = new ArrayList<>();
+                replacements = new ArrayList<>();
+            }
+            tokens.add(new int[]{open, close + 2});
+            replacements.add(value);
+            from = close + 2;
+        }
+        if (tokens == null) {
+            return 0;
+        }
+
+        // 逐个文字节点重写：删去占位符覆盖的字符，在占位符起点写入替换值
+        int k = 0;
+        for (int i = 0; i < texts.size(); i++) {
+            int start = starts[i];
+            int end = starts[i + 1];
+            while (k < tokens.size() && tokens.get(k)[1] <= start) {
+                k++;
+            }
+            if (k >= tokens.size() || tokens.get(k)[0] >= end) {
+                continue;
+            }
+            StringBuilder text = new StringBuilder(end - start + 16);
+            int pos = start;
+            int t = k;
+            while (pos < end) {
+                if (t < tokens.size() && pos >= tokens.get(t)[0]) {
+                    if (pos == tokens.get(t)[0]) {
+                        text.append(replacements.get(t));
+                    }
+                    pos = Math.min(end, tokens.get(t)[1]);
+                    if (pos == tokens.get(t)[1]) {
+                        t++;
+                    }
+                    continue;
+                }
+                int stop = t < tokens.size() ? Math.min(end, tokens.get(t)[0]) : end;
+                text.append(buffer, pos, stop);
+                pos = stop;
+            }
+            setText(texts.get(i), text.toString());
+        }
+        return tokens.size();
+    }
+
+    //与 XWPFRun#setText 一致，首尾有空白时保留空格。
+    //文本框中的节点可能是未按 schema 解析的通用节点，统一用游标读写
+    private static void setText(XmlObject textNode, String text) {
+        try (XmlCursor cursor = textNode.newCursor()) {
+            cursor.setTextValue(text);
+            if (!text.isEmpty() && (Character.isWhitespace(text.charAt(0)) || Character.isWhitespace(text.charAt(text.length() - 1)))) {
+                cursor.setAttributeText(XML_SPACE, "preserve");
+            }
+        }
+    }
+}
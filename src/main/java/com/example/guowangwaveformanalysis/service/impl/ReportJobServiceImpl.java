@@ -0,0 +1,131 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import com.example.guowangwaveformanalysis.pojo.ReportJob;
+import com.example.guowangwaveformanalysis.service.ReportJobService;
+import com.example.guowangwaveformanalysis.service.TemplateService;
+import com.example.guowangwaveformanalysis.service.XlsService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+@Slf4j
+@Service
+public class ReportJobServiceImpl implements ReportJobService {
+
+    @Autowired
+    private XlsService xlsService;
+
+    @Autowired
+    private ThreadPoolTaskExecutor reportJobExecutor;
+
+    //排队期间锁定任务所用的模板，避免执行前被淘汰
+    @Autowired
+    private TemplateService templateService;
+
+    //已结束任务的保留时间，与报告文件保留时间一致
+    @Value("${report.output.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+
+    //排队中、执行中的任务数，线程池本身的指标由 Actuator 的 executor.* 给出
+    @PostConstruct
+    public void registerMetrics() {
+        for (ReportJob.Status status : new ReportJob.Status[]{ReportJob.Status.QUEUED, ReportJob.Status.RUNNING}) {
+            Gauge.builder("report.jobs", jobs, m -> m.values().stream().filter(job -> job.getStatus() == status).count())
+                    .description("异步报告任务数")
+                    .tag("status", status.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public ReportJob submit(MultipartFile file, String templateId, MultipartFile[] images,
+                            Map<String, String> replaceMap, List<Map<String, String>> measurementList) throws Exception {
+        Path workDir = Files.createTempDirectory("report-job-");
+        boolean pinned = false;
+        try {
+            templateService.pin(templateId);
+            pinned = true;
+            MultipartFile spooledFile = SpooledMultipartFile.spool(file, workDir);
+            MultipartFile[] spooledImages = null;
+            if (images != null) {
+                spooledImages = new MultipartFile[images.length];
+                for (int i = 0; i < images.length; i++) {
+                    spooledImages[i] = SpooledMultipartFile.spool(images[i], workDir);
+                }
+            }
+            ReportJob job = new ReportJob(UUID.randomUUID().toString().replace("-", ""));
+            MultipartFile[] jobImages = spooledImages;
+            jobs.put(job.getId(), job);
+            try {
+                reportJobExecutor.execute(() -> run(job, workDir, spooledFile, templateId, jobImages, replaceMap, measurementList));
+            } catch (RejectedExecutionException e) {
+                jobs.remove(job.getId());
+                throw e;
+            }
+            return job;
+        } catch (Exception e) {
+            if (pinned) {
+                templateService.unpin(templateId);
+            }
+            FileSystemUtils.deleteRecursively(workDir);
+            throw e;
+        }
+    }
+
+    @Override
+    public ReportJob get(String jobId) {
+        return jobId == null ? null : jobs.get(jobId);
+    }
+
+    private void run(ReportJob job, Path workDir, MultipartFile file, String templateId, MultipartFile[] images,
+                     Map<String, String> replaceMap, List<Map<String, String>> measurementList) {
+        job.setStatus(ReportJob.Status.RUNNING);
+        job.setStartedAt(System.currentTimeMillis());
+        try {
+            String outputPath = xlsService.processExcelFile(file, templateId, images, replaceMap, measurementList, job::enterStage);
+            String fileName = outputPath.substring(outputPath.lastIndexOf(File.separator) + 1);
+            job.succeed("/download/" + fileName);
+            log.info("报告任务完成：{}，耗时 {} ms", job.getId(), job.getFinishedAt() - job.getStartedAt());
+        } catch (Exception e) {
+            log.error("报告任务失败：{}", job.getId(), e);
+            job.fail("文件处理失败：" + e.getMessage());
+        } finally {
+            templateService.unpin(templateId);
+            try {
+                FileSystemUtils.deleteRecursively(workDir);
+            } catch (IOException e) {
+                log.warn("删除任务临时目录失败：{}", workDir, e);
+            }
+        }
+    }
+
+    // 定时清理已结束且超过保留时间的任务记录
+    @Scheduled(fixedDelayString = "${report.output.cleanup-interval-ms:600000}")
+    public void purgeFinishedJobs() {
+        long deadline = System.currentTimeMillis() - ttlMinutes * 60_000L;
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt() < deadline);
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import com.example.guowangwaveformanalysis.pojo.ReportStage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 报告生成的指标：各阶段耗时与内存分配、输入大小、解析行数、替换占位符数、插入图片数与图表数、进行中的报告数、结果缓存命中情况。
+ * 通过 Actuator 暴露（/actuator/metrics、/actuator/prometheus），耗时给出 p50/p95/p99。
+ */
+@Component
+class ReportMetrics {
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private final MeterRegistry registry;
+    private final Map<ReportStage, Timer> stageTimers = new EnumMap<>(ReportStage.class);
+    private final Map<ReportStage, DistributionSummary> stageAllocations = new EnumMap<>(ReportStage.class);
+    private final DistributionSummary excelSize;
+    private final DistributionSummary imageSize;
+    private final Counter rowsParsed;
+    private final Counter placeholdersReplaced;
+    private final Counter imagesInserted;
+    private final Counter chartsInserted;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    //当前线程已分配字节数，JVM 不支持时为 null
+    private final com.sun.management.ThreadMXBean allocationBean;
+
+    ReportMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (ReportStage stage : ReportStage.values()) {
+            String name = stage.name().toLowerCase();
+            stageTimers.put(stage, Timer.builder("report.stage.duration")
+                    .description("报告生成各阶段耗时")
+                    .tag("stage", name)
+                    .publishPercentiles(PERCENTILES)
+                    .publishPercentileHistogram()
+                    .register(registry));
+            stageAllocations.put(stage, DistributionSummary.builder("report.stage.allocated")
+                    .description("报告生成各阶段在当前线程上分配的内存")
+                    .baseUnit("bytes")
+                    .tag("stage", name)
+                    .publishPercentiles(PERCENTILES)
+                    .register(registry));
+        }
+        excelSize = inputSize("excel");
+        imageSize = inputSize("image");
+        rowsParsed = Counter.builder("report.rows.parsed").description("解析的Excel行数").register(registry);
+        placeholdersReplaced = Counter.builder("report.placeholders.replaced").description("替换的占位符个数").register(registry);
+        imagesInserted = Counter.builder("report.images.inserted").description("插入的图片张数").register(registry);
+        chartsInserted = Counter.builder("report.charts.inserted").description("生成的图表个数").register(registry);
+        cacheHits = Counter.builder("report.cache.requests").description("报告结果缓存查询次数").tag("result", "hit").register(registry);
+        cacheMisses = Counter.builder("report.cache.requests").description("报告结果缓存查询次数").tag("result", "miss").register(registry);
+        Gauge.builder("report.inflight", inFlight, AtomicInteger::get)
+                .description("正在生成的报告数（含同步、异步与批量）")
+                .register(registry);
+
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            allocationBean = (com.sun.management.ThreadMXBean) bean;
+        } else {
+            allocationBean = null;
+        }
+    }
+
+    private DistributionSummary inputSize(String kind) {
+        return DistributionSummary.builder("report.input.size")
+                .description("上传文件大小")
+                .baseUnit("bytes")
+                .tag("kind", kind)
+                .publishPercentiles(PERCENTILES)
+                .register(registry);
+    }
+
+    //开始记录一次报告生成，返回的对象同时作为阶段回调传入生成流程
+    Recording start(Consumer<ReportStage> progress) {
+        inFlight.incrementAndGet();
+        return new Recording(progress);
+    }
+
+    void excelSize(long bytes) {
+        excelSize.record(bytes);
+    }
+
+    void imageSize(long bytes) {
+        imageSize.record(bytes);
+    }
+
+    void rowsParsed(int rows) {
+        rowsParsed.increment(rows);
+    }
+
+    void placeholdersReplaced(int count) {
+        placeholdersReplaced.increment(count);
+    }
+
+    void imageInserted() {
+        imagesInserted.increment();
+    }
+
+    void chartInserted() {
+        chartsInserted.increment();
+    }
+
+    void cacheHit() {
+        cacheHits.increment();
+    }
+
+    void cacheMiss() {
+        cacheMisses.increment();
+    }
+
+    //结果缓存占用的磁盘空间
+    <T> void cacheSize(T cache, ToDoubleFunction<T> bytes) {
+        Gauge.builder("report.cache.size", cache, bytes)
+                .description("报告结果缓存占用的磁盘空间")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private long allocatedBytes() {
+        return allocationBean == null ? 0 : allocationBean.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * 一次报告生成的记录：进入新阶段时结束上一阶段的计时，关闭时结束最后一个阶段并记录总耗时。
+     * 内存分配按当前线程统计；阶段跨了线程（虚拟线程模式下填充在 CPU 线程池中执行）或在虚拟线程上时不统计该阶段的分配。
+     */
+    class Recording implements Consumer<ReportStage>, AutoCloseable {
+        private final Consumer<ReportStage> delegate;
+        private final long startNanos = System.nanoTime();
+        private ReportStage stage;
+        private long stageStartNanos;
+        private long stageStartAllocated;
+        private Thread stageThread;
+        private boolean succeeded;
+
+        private Recording(Consumer<ReportStage> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void accept(ReportStage next) {
+            endStage();
+            stage = next;
+            stageStartNanos = System.nanoTime();
+            stageStartAllocated = allocatedBytes();
+            stageThread = Thread.currentThread();
+            delegate.accept(next);
+        }
+
+        //标记本次生成成功，未标记即关闭的记为失败
+        void succeed() {
+            succeeded = true;
+        }
+
+        private void endStage() {
+            if (stage == null) {
+                return;
+            }
+            stageTimers.get(stage).record(System.nanoTime() - stageStartNanos, TimeUnit.NANOSECONDS);
+            long allocated = allocatedBytes();
+            // 不支持统计的线程返回 -1
+            if (allocationBean != null && stageThread == Thread.currentThread() && stageStartAllocated >= 0 && allocated >= 0) {
+                stageAllocations.get(stage).record(allocated - stageStartAllocated);
+            }
+            stage = null;
+        }
+
+        @Override
+        public void close() {
+            endStage();
+            Timer.builder("report.duration")
+                    .description("报告生成总耗时")
+                    .tag("outcome", succeeded ? "success" : "failure")
+                    .publishPercentiles(PERCENTILES)
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            inFlight.decrementAndGet();
+        }
+    }
+}
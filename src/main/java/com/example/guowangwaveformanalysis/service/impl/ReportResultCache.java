@@ -0,0 +1,240 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import com.example.guowangwaveformanalysis.service.ReportStoreService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 报告结果缓存：按全部输入（Excel、模板、图片、字段、仪器列表及影响输出的配置）的 SHA-256 保存生成的报告，
+ * 相同输入再次提交时直接复制已有报告发布，不再解析、填充。
+ * 缓存文件保存在本地目录，重启后仍有效；总大小超过上限时按最久未用淘汰，最近使用时间记在文件修改时间上。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "report.cache.enabled", havingValue = "true", matchIfMissing = true)
+class ReportResultCache {
+
+    private static final String SUFFIX = ".docx";
+    private static final Pattern ENTRY_NAME = Pattern.compile("[0-9a-f]{64}\\.docx");
+
+    @Autowired
+    private ReportStoreService reportStore;
+
+    @Autowired
+    private ReportMetrics metrics;
+
+    private final Path cacheDir;
+    private final long maxBytes;
+
+    //按访问顺序排列，值为文件大小
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    ReportResultCache(@Value("${report.cache.dir:cache}") String cacheDir,
+                      @Value("${report.cache.max-bytes:1073741824}") long maxBytes) {
+        this.cacheDir = Paths.get(cacheDir).toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+    }
+
+    //启动时按修改时间从旧到新登记已有的缓存文件，清掉写了一半的临时文件
+    @PostConstruct
+    void load() throws IOException {
+        Files.createDirectories(cacheDir);
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> list = Files.list(cacheDir)) {
+            for (Path file : (Iterable<Path>) list::iterator) {
+                if (ENTRY_NAME.matcher(file.getFileName().toString()).matches()) {
+                    files.add(file);
+                } else if (file.getFileName().toString().endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        Map<Path, FileTime> modified = new HashMap<>();
+        for (Path file : files) {
+            modified.put(file, Files.getLastModifiedTime(file));
+        }
+        files.sort(Comparator.comparing(modified::get));
+        synchronized (entries) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long size = Files.size(file);
+                entries.put(name.substring(0, name.length() - SUFFIX.length()), size);
+                cachedBytes += size;
+            }
+            evictIfNecessary();
+        }
+        metrics.cacheSize(this, cache -> cache.cachedBytes);
+        log.info("报告结果缓存：{}（{} 份，{} 字节）", cacheDir, entries.size(), cachedBytes);
+    }
+
+    /**
+     * 计算输入的缓存键。字符串按长度前缀写入摘要，字段顺序不影响结果，图片、仪器的顺序会影响结果
+     * @param settings 影响输出的服务端配置（表格映射、图片处理参数等）
+     */
+    String keyOf(MultipartFile excel, String templateId, MultipartFile[] images, Map<String, String> replaceMap,
+                 List<Map<String, String>> measurementList, String settings) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        DataOutputStream out = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), digest));
+        writeString(out, settings);
+        writeString(out, templateId);
+        writeFile(out, excel);
+        out.writeInt(images == null ? -1 : images.length);
+        if (images != null) {
+            for (MultipartFile image : images) {
+                writeFile(out, image);
+            }
+        }
+        writeMap(out, replaceMap);
+        out.writeInt(measurementList == null ? -1 : measurementList.size());
+        if (measurementList != null) {
+            for (Map<String, String> measurement : measurementList) {
+                writeMap(out, measurement);
+            }
+        }
+        out.flush();
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * 命中时把缓存的报告发布为新的报告文件
+     * @return 报告文件名，未命中时返回 null
+     */
+    String publish(String key) throws IOException {
+        Path file = entryPath(key);
+        synchronized (entries) {
+            if (entries.get(key) == null) {
+                metrics.cacheMiss();
+                return null;
+            }
+        }
+        try {
+            String fileName = reportStore.publish(out -> Files.copy(file, out));
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            metrics.cacheHit();
+            return fileName;
+        } catch (NoSuchFileException e) {
+            // 刚被淘汰或被手工删除，按未命中处理
+            remove(key);
+            metrics.cacheMiss();
+            return null;
+        }
+    }
+
+    //登记新生成的报告：每次写入各用一个临时文件，完整后再改名，相同输入同时提交时互不干扰
+    void put(String key, Path report) {
+        Path target = entryPath(key);
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(cacheDir, key, ".tmp");
+            long size;
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                size = Files.copy(report, out);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            synchronized (entries) {
+                Long previous = entries.put(key, size);
+                cachedBytes += size - (previous == null ? 0 : previous);
+                evictIfNecessary();
+            }
+        } catch (IOException e) {
+            log.warn("报告写入结果缓存失败：{}", key, e);
+        } finally {
+            try {
+                if (temp != null) {
+                    Files.deleteIfExists(temp);
+                }
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void remove(String key) {
+        synchronized (entries) {
+            Long size = entries.remove(key);
+            if (size != null) {
+                cachedBytes -= size;
+            }
+        }
+    }
+
+    //超过上限时淘汰最久未用的报告，至少保留刚登记的一份
+    private void evictIfNecessary() {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (cachedBytes > maxBytes && entries.size() > 1 && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            it.remove();
+            cachedBytes -= eldest.getValue();
+            try {
+                Files.deleteIfExists(entryPath(eldest.getKey()));
+            } catch (IOException e) {
+                log.warn("删除缓存报告失败：{}", eldest.getKey(), e);
+            }
+        }
+    }
+
+    private Path entryPath(String key) {
+        return cacheDir.resolve(key + SUFFIX);
+    }
+
+    private static void writeFile(DataOutputStream out, MultipartFile file) throws IOException {
+        if (file == null || file.isEmpty()) {
+            out.writeLong(-1);
+            return;
+        }
+        out.writeLong(file.getSize());
+        try (InputStream in = file.getInputStream()) {
+            in.transferTo(out);
+        }
+    }
+
+    private static void writeMap(DataOutputStream out, Map<String, String> map) throws IOException {
+        if (map == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(map.size());
+        for (Map.Entry<String, String> entry : new TreeMap<>(map).entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import com.example.guowangwaveformanalysis.service.ReportStoreService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+public class ReportStoreServiceImpl implements ReportStoreService {
+
+    //临时文件后缀
+    private static final String TEMP_SUFFIX = ".tmp";
+    //只允许下载本服务生成的文件名，防止路径穿越
+    private static final Pattern REPORT_NAME = Pattern.compile("report-[0-9a-f]{32}\\.(docx|zip)");
+
+    private final Path outputDir;
+    private final Duration ttl;
+
+    public ReportStoreServiceImpl(@Value("${report.output.dir:outputs}") String outputDir,
+                                  @Value("${report.output.ttl-minutes:1440}") long ttlMinutes) {
+        this.outputDir = Paths.get(outputDir).toAbsolutePath().normalize();
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+    }
+
+    @Override
+    public String publish(ReportWriter writer) throws IOException {
+        return publish("docx", writer);
+    }
+
+    @Override
+    public String publish(String extension, ReportWriter writer) throws IOException {
+        String fileName = "report-" + UUID.randomUUID().toString().replace("-", "") + "." + extension;
+        if (!REPORT_NAME.matcher(fileName).matches()) {
+            throw new IllegalArgumentException("不支持的报告类型：" + extension);
+        }
+        Files.createDirectories(outputDir);
+        Path target = outputDir.resolve(fileName);
+        Path temp = outputDir.resolve("." + fileName + TEMP_SUFFIX);
+        try {
+            try (OutputStream out = Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                writer.writeTo(out);
+            }
+            // 写完后再改名，下载方永远看不到写了一半的文件
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return fileName;
+    }
+
+    @Override
+    public Path resolve(String fileName) {
+        if (fileName == null || !REPORT_NAME.matcher(fileName).matches()) {
+            return null;
+        }
+        Path file = outputDir.resolve(fileName);
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    // 定时清理过期报告，间隔默认10分钟
+    @Override
+    @Scheduled(fixedDelayString = "${report.output.cleanup-interval-ms:600000}",
+            initialDelayString = "${report.output.cleanup-interval-ms:600000}")
+    public void purgeExpired() {
+        if (!Files.isDirectory(outputDir)) {
+            return;
+        }
+        Instant deadline = Instant.now().minus(ttl);
+        int removed = 0;
+        try (Stream<Path> files = Files.list(outputDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                boolean managed = REPORT_NAME.matcher(name).matches()
+                        || (name.startsWith(".report-") && name.endsWith(TEMP_SUFFIX));
+                if (!managed) {
+                    continue;
+                }
+                try {
+                    if (Files.getLastModifiedTime(file).toInstant().isBefore(deadline) && Files.deleteIfExists(file)) {
+                        removed++;
+                    }
+                } catch (IOException e) {
+                    log.warn("清理过期报告失败: {}", file, e);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("扫描报告目录失败: {}", outputDir, e);
+        }
+        if (removed > 0) {
+            log.info("已清理过期报告 {} 个", removed);
+        }
+    }
+}
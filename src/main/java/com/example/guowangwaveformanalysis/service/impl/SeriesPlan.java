@@ -0,0 +1,234 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import com.example.guowangwaveformanalysis.pojo.ExcelSheetData;
+import com.example.guowangwaveformanalysis.pojo.MeasurementMatrix;
+import com.example.guowangwaveformanalysis.pojo.TableLayout;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 由 TableLayout.Series 编译出的原始时间序列统计计划。
+ * 每个展开后的列名（如 UA_H5）对应一个统计目标：统计工作表、行、该相第一个统计量所在列；
+ * 解析时由 SeriesStatistics 单遍累计，结束后按 columns 的顺序写回统计工作表，供原有表格映射使用。
+ */
+class SeriesPlan {
+
+    //统计量种类
+    static final byte MAX = 0, MEAN = 1, MIN = 2, QUANTILE = 3;
+
+    private final String sheetName;
+    private final Map<String, Integer> targetByHeader = new HashMap<>();
+    private final List<String> targetName = new ArrayList<>();
+    private final List<String> targetSheet = new ArrayList<>();
+    private final List<int[]> targetCell = new ArrayList<>();
+    //按相同相别的各次谐波逐行计算总畸变率的目标，及其来源目标
+    private final Map<Integer, int[]> thdSources = new HashMap<>();
+
+    private final byte[] statKinds;
+    //统计量名称（小写），如 max、p95
+    private final String[] statNames;
+    //QUANTILE 类统计量的分位数
+    private final double[] statQuantiles;
+    private final List<TableLayout.Limit> limits;
+
+    private SeriesPlan(TableLayout.Series series) {
+        this.sheetName = series.getSheet();
+        this.limits = series.getLimits();
+        List<String> columns = series.getColumns();
+        this.statKinds = new byte[columns.size()];
+        this.statQuantiles = new double[columns.size()];
+        this.statNames = new String[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            String column = columns.get(i).toLowerCase(Locale.ROOT);
+            statNames[i] = column;
+            switch (column) {
+                case "max":
+                    statKinds[i] = MAX;
+                    break;
+                case "mean":
+                    statKinds[i] = MEAN;
+                    break;
+                case "min":
+                    statKinds[i] = MIN;
+                    break;
+                default:
+                    if (!column.matches("p\\d{1,2}(\\.\\d+)?")) {
+                        throw new IllegalStateException("不支持的统计量：" + columns.get(i));
+                    }
+                    statKinds[i] = QUANTILE;
+                    statQuantiles[i] = Double.parseDouble(column.substring(1)) / 100;
+                    break;
+            }
+        }
+    }
+
+    //编译原始时间序列配置，未配置时返回 null
+    static SeriesPlan compile(TableLayout.Series series, List<String> summarySheets) {
+        if (series == null) {
+            return null;
+        }
+        if (series.getSheet() == null || series.getColumns().isEmpty()) {
+            throw new IllegalStateException("原始时间序列配置有误（sheet、columns 不能为空）");
+        }
+        SeriesPlan plan = new SeriesPlan(series);
+        List<Integer> pendingThd = new ArrayList<>();
+        List<String> pendingSource = new ArrayList<>();
+        for (TableLayout.Quantity quantity : series.getQuantities()) {
+            if (!summarySheets.contains(quantity.getSheet())) {
+                throw new IllegalStateException("原始时间序列引用了未声明的工作表：" + quantity.getSheet());
+            }
+            boolean phased = quantity.getHeader().contains("{phase}");
+            Map<String, Integer> phases = phased ? series.getPhases() : Map.of("", quantity.getCol());
+            for (Map.Entry<String, Integer> phase : phases.entrySet()) {
+                String header = quantity.getHeader().replace("{phase}", phase.getKey());
+                int[] orders = quantity.getHarmonics();
+                if (orders == null) {
+                    int target = plan.addTarget(header, quantity.getSheet(), quantity.getRow(), phase.getValue());
+                    if (quantity.getThdOf() != null) {
+                        pendingThd.add(target);
+                        pendingSource.add(quantity.getThdOf().replace("{phase}", phase.getKey()));
+                    }
+                    continue;
+                }
+                for (int h = orders[0]; h <= orders[1]; h++) {
+                    plan.addTarget(header.replace("{h}", Integer.toString(h)), quantity.getSheet(),
+                            quantity.getRow() + h - orders[0], phase.getValue());
+                }
+            }
+        }
+        // 谐波列名可能在 THD 之后声明，全部展开后再解析来源
+        for (int i = 0; i < pendingThd.size(); i++) {
+            String pattern = pendingSource.get(i);
+            List<Integer> sources = new ArrayList<>();
+            for (int h = 2; h <= 50; h++) {
+                Integer source = plan.targetByHeader.get(normalize(pattern.replace("{h}", Integer.toString(h))));
+                if (source != null) {
+                    sources.add(source);
+                }
+            }
+            if (sources.isEmpty()) {
+                throw new IllegalStateException("thdOf 没有对应的谐波列：" + pattern);
+            }
+            plan.thdSources.put(pendingThd.get(i), sources.stream().mapToInt(Integer::intValue).toArray());
+        }
+        return plan;
+    }
+
+    private int addTarget(String header, String sheet, int row, int col) {
+        int target = targetSheet.size();
+        if (targetByHeader.putIfAbsent(normalize(header), target) != null) {
+            throw new IllegalStateException("原始时间序列列名重复：" + header);
+        }
+        targetName.add(normalize(header));
+        targetSheet.add(sheet);
+        targetCell.add(new int[]{row, col});
+        return target;
+    }
+
+    //列名比较忽略首尾空白和大小写
+    static String normalize(String header) {
+        return header.trim().toUpperCase(Locale.ROOT);
+    }
+
+    String getSheetName() {
+        return sheetName;
+    }
+
+    int getTargetCount() {
+        return targetSheet.size();
+    }
+
+    //列名对应的统计目标，不需要的列为 -1
+    int targetOf(String header) {
+        Integer target = targetByHeader.get(normalize(header));
+        return target == null ? -1 : target;
+    }
+
+    Map<Integer, int[]> getThdSources() {
+        return thdSources;
+    }
+
+    byte[] getStatKinds() {
+        return statKinds;
+    }
+
+    double[] getStatQuantiles() {
+        return statQuantiles;
+    }
+
+    //历史测量库的列名：统计目标加统计量，如 UA_H5.p95
+    String[] historyColumns() {
+        String[] columns = new String[targetName.size() * statNames.length];
+        for (int target = 0; target < targetName.size(); target++) {
+            for (int i = 0; i < statNames.length; i++) {
+                columns[target * statNames.length + i] = targetName.get(target) + "." + statNames[i];
+            }
+        }
+        return columns;
+    }
+
+    //按 historyColumns 的顺序从统计工作表取值，不论统计值来自原始时间序列还是上传的统计工作表
+    double[] historyValues(ExcelSheetData data) {
+        double[] values = new double[targetName.size() * statNames.length];
+        for (int target = 0; target < targetName.size(); target++) {
+            MeasurementMatrix sheet = data.getSheet(targetSheet.get(target));
+            int[] cell = targetCell.get(target);
+            for (int i = 0; i < statNames.length; i++) {
+                values[target * statNames.length + i] = sheet.value(cell[0], cell[1] + i);
+            }
+        }
+        return values;
+    }
+
+    SeriesStatistics newStatistics() {
+        return new SeriesStatistics(this);
+    }
+
+    /**
+     * 把统计结果写入统计工作表的行数据（工作表不存在时新建），已有内容中只覆盖统计单元格；
+     * 限值只补在空白单元格上，上传的统计工作表中已有的限值保持不变
+     */
+    void overlay(SeriesStatistics statistics, Map<String, List<List<Object>>> sheets) {
+        for (int target = 0; target < targetSheet.size(); target++) {
+            if (statistics.count(target) == 0) {
+                continue;
+            }
+            List<List<Object>> rows = sheets.computeIfAbsent(targetSheet.get(target), k -> new ArrayList<>());
+            int[] cell = targetCell.get(target);
+            for (int i = 0; i < statKinds.length; i++) {
+                set(rows, cell[0], cell[1] + i, statistics.statistic(target, i));
+            }
+        }
+        for (TableLayout.Limit limit : limits) {
+            List<List<Object>> rows = sheets.computeIfAbsent(limit.getSheet(), k -> new ArrayList<>());
+            for (int i = 0; i < limit.getValues().size(); i++) {
+                Object current = get(rows, limit.getRow() + i, limit.getCol());
+                if (current == null || "".equals(current)) {
+                    set(rows, limit.getRow() + i, limit.getCol(), limit.getValues().get(i));
+                }
+            }
+        }
+    }
+
+    private static Object get(List<List<Object>> rows, int row, int col) {
+        if (row >= rows.size() || col >= rows.get(row).size()) {
+            return null;
+        }
+        return rows.get(row).get(col);
+    }
+
+    private static void set(List<List<Object>> rows, int row, int col, Object value) {
+        while (rows.size() <= row) {
+            rows.add(new ArrayList<>());
+        }
+        List<Object> cells = rows.get(row);
+        while (cells.size() <= col) {
+            cells.add(null);
+        }
+        cells.set(col, value);
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单次解析的原始时间序列统计：每个目标只保存最大、最小、累加和与分位数估计器，
+ * 与原始数据行数无关；数据行逐行送入，处理完即丢弃。
+ */
+final class SeriesStatistics implements StreamingExcelReader.SeriesListener {
+
+    private final SeriesPlan plan;
+    private final long[] counts;
+    private final double[] sums;
+    private final double[] mins;
+    private final double[] maxs;
+    //第 t 个目标、第 i 个统计量的估计器位于 quantiles[t * statCount + i]，非分位数统计量为 null
+    private final P2Quantile[] quantiles;
+    private final int statCount;
+
+    //需要逐行计算总畸变率的目标（原始数据中没有该列）及其来源
+    private int[] derived = new int[0];
+    private int[][] derivedSources = new int[0][];
+    //当前行各目标的值，只在有派生目标时使用
+    private double[] rowValues;
+    private long rows;
+
+    SeriesStatistics(SeriesPlan plan) {
+        this.plan = plan;
+        int targets = plan.getTargetCount();
+        this.counts = new long[targets];
+        this.sums = new double[targets];
+        this.mins = new double[targets];
+        this.maxs = new double[targets];
+        Arrays.fill(mins, Double.POSITIVE_INFINITY);
+        Arrays.fill(maxs, Double.NEGATIVE_INFINITY);
+        byte[] kinds = plan.getStatKinds();
+        this.statCount = kinds.length;
+        this.quantiles = new P2Quantile[targets * statCount];
+        for (int t = 0; t < targets; t++) {
+            for (int i = 0; i < statCount; i++) {
+                if (kinds[i] == SeriesPlan.QUANTILE) {
+                    quantiles[t * statCount + i] = new P2Quantile(plan.getStatQuantiles()[i]);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int[] header(List<String> names) {
+        int[] columns = new int[names.size()];
+        boolean[] present = new boolean[plan.getTargetCount()];
+        for (int col = 0; col < columns.length; col++) {
+            String name = names.get(col);
+            columns[col] = name == null ? -1 : plan.targetOf(name);
+            if (columns[col] >= 0) {
+                present[columns[col]] = true;
+            }
+        }
+        List<Integer> targets = new ArrayList<>();
+        List<int[]> sources = new ArrayList<>();
+        for (Map.Entry<Integer, int[]> entry : plan.getThdSources().entrySet()) {
+            if (present[entry.getKey()]) {
+                continue;
+            }
+            int[] available = Arrays.stream(entry.getValue()).filter(s -> present[s]).toArray();
+            if (available.length > 0) {
+                targets.add(entry.getKey());
+                sources.add(available);
+            }
+        }
+        derived = targets.stream().mapToInt(Integer::intValue).toArray();
+        derivedSources = sources.toArray(new int[0][]);
+        if (derived.length > 0) {
+            rowValues = new double[plan.getTargetCount()];
+            Arrays.fill(rowValues, Double.NaN);
+        }
+        return columns;
+    }
+
+    @Override
+    public void value(int target, double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        add(target, value);
+        if (rowValues != null) {
+            rowValues[target] = value;
+        }
+    }
+
+    @Override
+    public void endRow() {
+        rows++;
+        if (rowValues == null) {
+            return;
+        }
+        // THDu = sqrt(Σ HRUh²)，各次谐波含有率以百分数表示
+        for (int i = 0; i < derived.length; i++) {
+            double squares = 0;
+            boolean any = false;
+            for (int source : derivedSources[i]) {
+                double v = rowValues[source];
+                if (!Double.isNaN(v)) {
+                    squares += v * v;
+                    any = true;
+                }
+            }
+            if (any) {
+                add(derived[i], Math.sqrt(squares));
+            }
+        }
+        Arrays.fill(rowValues, Double.NaN);
+    }
+
+    private void add(int target, double value) {
+        counts[target]++;
+        sums[target] += value;
+        if (value < mins[target]) {
+            mins[target] = value;
+        }
+        if (value > maxs[target]) {
+            maxs[target] = value;
+        }
+        int base = target * statCount;
+        for (int i = 0; i < statCount; i++) {
+            P2Quantile q = quantiles[base + i];
+            if (q != null) {
+                q.add(value);
+            }
+        }
+    }
+
+    //按工作簿方式读出的整张原始数据表（首个非空行为列名）逐行送入
+    void accept(List<List<Object>> sheetRows) {
+        int[] columns = null;
+        for (List<Object> row : sheetRows) {
+            if (columns == null) {
+                List<String> names = new ArrayList<>(row.size());
+                for (Object cell : row) {
+                    names.add(cell == null ? null : cell.toString());
+                }
+                columns = header(names);
+                continue;
+            }
+            for (int col = 0; col < row.size() && col < columns.length; col++) {
+                Object cell = row.get(col);
+                if (columns[col] >= 0 && cell instanceof Number) {
+                    value(columns[col], ((Number) cell).doubleValue());
+                }
+            }
+            endRow();
+        }
+    }
+
+    long getRows() {
+        return rows;
+    }
+
+    long count(int target) {
+        return counts[target];
+    }
+
+    //第 target 个目标按 columns 顺序的第 index 个统计量
+    double statistic(int target, int index) {
+        if (counts[target] == 0) {
+            return Double.NaN;
+        }
+        switch (plan.getStatKinds()[index]) {
+            case SeriesPlan.MAX:
+                return maxs[target];
+            case SeriesPlan.MIN:
+                return mins[target];
+            case SeriesPlan.MEAN:
+                return sums[target] / counts[target];
+            default:
+                return quantiles[target * statCount + index].value();
+        }
+    }
+}
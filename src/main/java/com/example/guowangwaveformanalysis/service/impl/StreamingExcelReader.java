@@ -0,0 +1,432 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.poi.excel.ExcelDateUtil;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.ss.util.NumberToTextConverter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 基于 XSSF 事件模型（SAX）的 Excel 读取器。
+ * 不构建整本工作簿的对象模型，只保留报告用到的前 maxRows 行、前 maxCols 列，
+ * 读出的单元格值与 hutool ExcelReader#read() 一致（跳过空行、数字/日期/布尔的类型转换相同），
+ * 合并单元格区域单独返回，由调用方按原有方式回填。
+ */
+class StreamingExcelReader {
+
+    private final int maxRows;
+    private final int maxCols;
+    //各工作表并行解析所用的线程池，为 null 时逐个解析
+    private final ExecutorService executor;
+
+    StreamingExcelReader(int maxRows, int maxCols) {
+        this(maxRows, maxCols, null);
+    }
+
+    StreamingExcelReader(int maxRows, int maxCols, ExecutorService executor) {
+        this.maxRows = maxRows;
+        this.maxCols = maxCols;
+        this.executor = executor;
+    }
+
+    //单个工作表的读取结果
+    static class SheetRows {
+        final List<List<Object>> rows = new ArrayList<>();
+        final List<CellRangeAddress> mergedRegions = new ArrayList<>();
+    }
+
+    //读取指定名称的工作表，不存在的工作表不在结果中
+    Map<String, SheetRows> read(InputStream excelStream, Collection<String> sheetNames) throws IOException {
+        return read(excelStream, sheetNames, null, null);
+    }
+
+    Map<String, SheetRows> read(InputStream excelStream, Collection<String> sheetNames, String seriesSheet, SeriesListener listener) throws IOException {
+        // 先落到临时文件，按 zip 条目随机读取，内存占用与文件大小无关
+        Path temp = Files.createTempFile("excel-", ".xlsx");
+        try {
+            Files.copy(excelStream, temp, StandardCopyOption.REPLACE_EXISTING);
+            return read(temp, sheetNames, seriesSheet, listener);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    //已经在磁盘上的文件直接按 zip 条目读取，不再复制
+    Map<String, SheetRows> read(Path excelFile, Collection<String> sheetNames) throws IOException {
+        return read(excelFile, sheetNames, null, null);
+    }
+
+    /**
+     * 读取统计工作表的同时，把名为 seriesSheet 的原始时间序列工作表逐行送给 listener（不限行数、不保留行数据）
+     */
+    Map<String, SheetRows> read(Path excelFile, Collection<String> sheetNames, String seriesSheet, SeriesListener listener) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(excelFile.toFile(), PackageAccess.READ)) {
+            return read(pkg, sheetNames, seriesSheet, listener);
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Excel文件解析失败：" + e.getMessage(), e);
+        }
+    }
+
+    private Map<String, SheetRows> read(OPCPackage pkg, Collection<String> sheetNames, String seriesSheet, SeriesListener listener)
+            throws IOException, OpenXML4JException, SAXException, ParserConfigurationException {
+        XSSFReader xssfReader = new XSSFReader(pkg);
+        ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(pkg);
+        StylesTable styles = xssfReader.getStylesTable();
+
+        // 工作表是 zip 中互相独立的条目，各自用一个 SAX 解析器读取；共享字符串表、样式表只读
+        Map<String, SheetRows> result = new LinkedHashMap<>();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        boolean seriesPending = listener != null;
+        XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
+        while (sheets.hasNext()) {
+            sheets.next().close();
+            String name = sheets.getSheetName();
+            PackagePart part = sheets.getSheetPart();
+            DefaultHandler handler;
+            if (seriesPending && name.equals(seriesSheet)) {
+                handler = new SeriesHandler(listener, sharedStrings);
+                seriesPending = false;
+            } else if (sheetNames.contains(name) && !result.containsKey(name)) {
+                SheetRows target = new SheetRows();
+                result.put(name, target);
+                handler = new SheetHandler(target, sharedStrings, styles);
+            } else {
+                continue;
+            }
+            tasks.add(() -> {
+                try (InputStream sheetStream = part.getInputStream()) {
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(handler);
+                    parser.parse(new InputSource(sheetStream));
+                }
+                return null;
+            });
+        }
+        runAll(tasks);
+        return result;
+    }
+
+    private void runAll(List<Callable<Void>> tasks) throws IOException, SAXException, ParserConfigurationException {
+        try {
+            if (executor == null || tasks.size() < 2) {
+                for (Callable<Void> task : tasks) {
+                    task.call();
+                }
+                return;
+            }
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof SAXException) {
+                throw (SAXException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Excel文件解析失败：" + cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Excel解析被中断");
+        } catch (IOException | SAXException | ParserConfigurationException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Excel文件解析失败：" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 原始时间序列的逐行回调
+     */
+    interface SeriesListener {
+        //首个非空行为列名，返回各列对应的统计目标，不需要的列为 -1
+        int[] header(List<String> names);
+
+        //数据行中的数值单元格
+        void value(int target, double value);
+
+        //一行结束
+        void endRow();
+    }
+
+    /**
+     * 原始时间序列工作表的 SAX 处理：表头之后只解析被用到的数值单元格，不构造行对象
+     */
+    private static class SeriesHandler extends DefaultHandler {
+        private final SeriesListener listener;
+        private final ReadOnlySharedStringsTable sharedStrings;
+
+        private final StringBuilder value = new StringBuilder();
+        private final List<String> headerNames = new ArrayList<>();
+        private int[] columns;
+        private boolean collecting;
+        private boolean wanted;
+        private int colIndex = -1;
+        private String cellType;
+        private boolean rowHasValue;
+
+        SeriesHandler(SeriesListener listener, ReadOnlySharedStringsTable sharedStrings) {
+            this.listener = listener;
+            this.sharedStrings = sharedStrings;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row":
+                    colIndex = -1;
+                    rowHasValue = false;
+                    break;
+                case "c":
+                    String ref = attributes.getValue("r");
+                    colIndex = ref != null ? columnOf(ref) : colIndex + 1;
+                    cellType = attributes.getValue("t");
+                    value.setLength(0);
+                    // 表头行收集全部文字；数据行只要对应了统计目标的数值单元格
+                    wanted = columns == null
+                            || (colIndex < columns.length && columns[colIndex] >= 0 && (cellType == null || "n".equals(cellType)));
+                    break;
+                case "v":
+                case "t":
+                    collecting = wanted;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (collecting) {
+                value.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v":
+                case "t":
+                    collecting = false;
+                    break;
+                case "c":
+                    if (wanted && value.length() > 0) {
+                        cell();
+                    }
+                    break;
+                case "row":
+                    if (columns == null) {
+                        if (rowHasValue) {
+                            columns = listener.header(headerNames);
+                        } else {
+                            headerNames.clear();
+                        }
+                    } else if (rowHasValue) {
+                        listener.endRow();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        //单元格引用（如 AB12）中的列号，逐个单元格调用，不经过 CellReference 的完整解析
+        private static int columnOf(String ref) {
+            int col = 0;
+            for (int i = 0; i < ref.length(); i++) {
+                char c = ref.charAt(i);
+                if (c < 'A' || c > 'Z') {
+                    break;
+                }
+                col = col * 26 + (c - 'A' + 1);
+            }
+            return col - 1;
+        }
+
+        private void cell() {
+            String raw = value.toString();
+            if (columns == null) {
+                while (headerNames.size() < colIndex) {
+                    headerNames.add(null);
+                }
+                String name = "s".equals(cellType) ? sharedStrings.getItemAt(Integer.parseInt(raw)).getString() : raw;
+                headerNames.add(name);
+                rowHasValue |= !name.isEmpty();
+                return;
+            }
+            listener.value(columns[colIndex], Double.parseDouble(raw));
+            rowHasValue = true;
+        }
+    }
+
+    private class SheetHandler extends DefaultHandler {
+        private final SheetRows target;
+        private final ReadOnlySharedStringsTable sharedStrings;
+        private final StylesTable styles;
+
+        private final StringBuilder value = new StringBuilder();
+        private boolean collecting;
+        private int rowIndex = -1;
+        private int colIndex = -1;
+        private String cellType;
+        private String cellStyle;
+        private Object[] rowValues;
+        private int rowLength;
+
+        SheetHandler(SheetRows target, ReadOnlySharedStringsTable sharedStrings, StylesTable styles) {
+            this.target = target;
+            this.sharedStrings = sharedStrings;
+            this.styles = styles;
+        }
+
+        private boolean full() {
+            return target.rows.size() >= maxRows;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row":
+                    String r = attributes.getValue("r");
+                    rowIndex = r != null ? Integer.parseInt(r) - 1 : rowIndex + 1;
+                    colIndex = -1;
+                    rowLength = 0;
+                    rowValues = full() ? null : new Object[maxCols];
+                    break;
+                case "c":
+                    String ref = attributes.getValue("r");
+                    colIndex = ref != null ? new CellReference(ref).getCol() : colIndex + 1;
+                    cellType = attributes.getValue("t");
+                    cellStyle = attributes.getValue("s");
+                    value.setLength(0);
+                    // 与 Row#getLastCellNum 一致：空白但带样式的单元格也计入行宽
+                    rowLength = Math.max(rowLength, colIndex + 1);
+                    break;
+                case "v":
+                case "t":
+                    collecting = rowValues != null && colIndex < maxCols;
+                    break;
+                case "mergeCell":
+                    target.mergedRegions.add(CellRangeAddress.valueOf(attributes.getValue("ref")));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (collecting) {
+                value.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v":
+                case "t":
+                    collecting = false;
+                    break;
+                case "c":
+                    if (rowValues != null && colIndex < maxCols) {
+                        rowValues[colIndex] = cellValue();
+                    }
+                    break;
+                case "row":
+                    if (rowValues != null) {
+                        addRow();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        //与 hutool 相同：整行都是 null 或空串时视为空行跳过
+        private void addRow() {
+            int length = Math.min(rowLength, maxCols);
+            List<Object> row = new ArrayList<>(length);
+            boolean blank = true;
+            for (int i = 0; i < length; i++) {
+                Object v = rowValues[i];
+                blank &= v == null || (v instanceof CharSequence && ((CharSequence) v).length() == 0);
+                row.add(v);
+            }
+            if (!blank) {
+                target.rows.add(row);
+            }
+        }
+
+        private Object cellValue() {
+            String raw = value.toString();
+            if ("s".equals(cellType)) {
+                return raw.isEmpty() ? "" : sharedStrings.getItemAt(Integer.parseInt(raw)).getString();
+            }
+            if ("inlineStr".equals(cellType) || "str".equals(cellType) || "e".equals(cellType)) {
+                return raw;
+            }
+            if ("b".equals(cellType)) {
+                return raw.isEmpty() ? "" : "1".equals(raw);
+            }
+            if (raw.isEmpty()) {
+                return "";
+            }
+            return numericValue(Double.parseDouble(raw));
+        }
+
+        //数字单元格的转换规则同 hutool NumericCellValue：日期格式转日期，无小数格式的整数转 Long
+        private Object numericValue(double number) {
+            XSSFCellStyle style = styles.getStyleAt(cellStyle == null ? 0 : Integer.parseInt(cellStyle));
+            if (style != null) {
+                if (ExcelDateUtil.isDateFormat(style.getDataFormat(), style.getDataFormatString())) {
+                    LocalDateTime date = org.apache.poi.ss.usermodel.DateUtil.getLocalDateTime(number);
+                    if (date.getYear() == 1899) {
+                        return date.toLocalTime();
+                    }
+                    return DateUtil.date(date);
+                }
+                String format = style.getDataFormatString();
+                if (format != null && format.indexOf('.') < 0) {
+                    long longValue = (long) number;
+                    if (longValue == number) {
+                        return longValue;
+                    }
+                }
+            }
+            return Double.parseDouble(NumberToTextConverter.toText(number));
+        }
+    }
+}
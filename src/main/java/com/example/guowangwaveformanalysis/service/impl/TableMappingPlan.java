@@ -0,0 +1,273 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import com.example.guowangwaveformanalysis.pojo.ExcelSheetData;
+import com.example.guowangwaveformanalysis.pojo.MeasurementMatrix;
+import com.example.guowangwaveformanalysis.pojo.TableLayout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 由 TableLayout 编译出的填表执行计划。
+ * 每个目标单元格是 steps 中连续的 STRIDE 个整数：源工作表下标、源行、源列、目标行、目标列、格式下标，
+ * 按表格分段存放，填表时顺序执行一遍即可，不再逐个单元格遍历配置或做列表查找。
+ */
+class TableMappingPlan {
+
+    /**
+     * 目标单元格写入回调
+     */
+    @FunctionalInterface
+    interface CellWriter {
+        void write(int table, int row, int col, String text);
+    }
+
+    static final int STRIDE = 6;
+    private static final int SHEET = 0, SRC_ROW = 1, SRC_COL = 2, DST_ROW = 3, DST_COL = 4, FORMAT = 5;
+
+    //格式种类
+    private static final byte NUMBER = 0, TEXT = 1, NEGATE = 2, CONSTANT = 3;
+
+    private final String name;
+    private final String[] sheetNames;
+    private final String[] titles;
+    private final int[] steps;
+    //第 i 张表的步骤位于 steps[tableStart[i] .. tableStart[i + 1])
+    private final int[] tableStart;
+
+    private final byte[] kinds;
+    private final int[] scales;
+    private final double[] divisors;
+    private final double[] offsets;
+    private final String[] constants;
+
+    private final int monitorSheet, monitorRow, monitorCol;
+
+    private final String[] placeholderNames;
+    private final boolean[] placeholderMax;
+    private final int[] placeholderSheet;
+    private final int[][] placeholderCells;
+    private final int[] placeholderScale;
+
+    private TableMappingPlan(Builder b) {
+        this.name = b.layout.getName();
+        this.sheetNames = b.layout.getSheets().toArray(new String[0]);
+        this.titles = b.titles.toArray(new String[0]);
+        this.steps = Arrays.copyOf(b.steps, b.stepCount);
+        this.tableStart = b.tableStart.stream().mapToInt(Integer::intValue).toArray();
+        this.kinds = Arrays.copyOf(b.kinds, b.formatCount);
+        this.scales = Arrays.copyOf(b.scales, b.formatCount);
+        this.divisors = Arrays.copyOf(b.divisors, b.formatCount);
+        this.offsets = Arrays.copyOf(b.offsets, b.formatCount);
+        this.constants = Arrays.copyOf(b.constants, b.formatCount);
+        TableLayout.CellRef monitor = b.layout.getMonitorPosition();
+        this.monitorSheet = b.sheetIndex(monitor.getSheet());
+        this.monitorRow = monitor.getRow();
+        this.monitorCol = monitor.getCol();
+        List<TableLayout.Placeholder> placeholders = b.layout.getPlaceholders();
+        int n = placeholders.size();
+        this.placeholderNames = new String[n];
+        this.placeholderMax = new boolean[n];
+        this.placeholderSheet = new int[n];
+        this.placeholderCells = new int[n][];
+        this.placeholderScale = new int[n];
+        for (int i = 0; i < n; i++) {
+            TableLayout.Placeholder p = placeholders.get(i);
+            placeholderNames[i] = p.getName();
+            placeholderMax[i] = !"min".equalsIgnoreCase(p.getFunction());
+            placeholderSheet[i] = b.sheetIndex(p.getSheet());
+            int[] cells = new int[p.getCells().length * 2];
+            for (int j = 0; j < p.getCells().length; j++) {
+                cells[j * 2] = p.getCells()[j][0];
+                cells[j * 2 + 1] = p.getCells()[j][1];
+            }
+            placeholderCells[i] = cells;
+            placeholderScale[i] = p.getScale();
+        }
+    }
+
+    //编译表格映射配置，配置有误时启动即失败
+    static TableMappingPlan compile(TableLayout layout) {
+        Builder b = new Builder(layout);
+        for (TableLayout.Table table : layout.getTables()) {
+            b.tableStart.add(b.stepCount);
+            b.titles.add(table.getTitle() == null ? "" : table.getTitle());
+            for (TableLayout.Mapping m : table.getMappings()) {
+                if (m.getRows() == null || m.getRows().length != 2 || m.getCols() == null || m.getCols().length == 0) {
+                    throw new IllegalStateException("表格映射配置有误（rows 需为 [起始行, 结束行]，cols 不能为空）：" + m);
+                }
+                int sheet = b.sheetIndex(m.getSheet());
+                int format = b.format(kindOf(m.getFormat()), m.getScale(), m.getDivisor(), m.getOffset(), null);
+                for (int row = m.getRows()[0]; row <= m.getRows()[1]; row++) {
+                    for (int j = 0; j < m.getCols().length; j++) {
+                        b.step(sheet, row, m.getCols()[j], m.getDstRow() + row - m.getRows()[0], m.getDstCol() + j, format);
+                    }
+                }
+            }
+            for (TableLayout.Constant c : table.getConstants()) {
+                b.step(0, -1, -1, c.getRow(), c.getCol(), b.format(CONSTANT, 0, 1, 0, c.getText()));
+            }
+        }
+        b.tableStart.add(b.stepCount);
+        return new TableMappingPlan(b);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String[] getSheetNames() {
+        return sheetNames;
+    }
+
+    int getTableCount() {
+        return titles.length;
+    }
+
+    String getTitle(int table) {
+        return titles[table];
+    }
+
+    //按计划中的工作表顺序取出数据，填表时按下标访问
+    MeasurementMatrix[] resolveSheets(ExcelSheetData data) {
+        MeasurementMatrix[] sheets = new MeasurementMatrix[sheetNames.length];
+        for (int i = 0; i < sheetNames.length; i++) {
+            sheets[i] = data.getSheet(sheetNames[i]);
+        }
+        return sheets;
+    }
+
+    //监测位置：去掉“监测点：”之类的前缀
+    String monitorPosition(MeasurementMatrix[] sheets) {
+        String raw = sheets[monitorSheet].text(monitorRow, monitorCol);
+        return raw == null ? "" : raw.replaceAll(".*[：:]", "").trim();
+    }
+
+    //执行第 table 张表的全部步骤
+    void fillTable(int table, MeasurementMatrix[] sheets, CellWriter writer) {
+        DecimalFormatter formatter = new DecimalFormatter();
+        for (int i = tableStart[table]; i < tableStart[table + 1]; i += STRIDE) {
+            int format = steps[i + FORMAT];
+            String text;
+            switch (kinds[format]) {
+                case CONSTANT:
+                    text = constants[format];
+                    break;
+                case TEXT:
+                    String value = sheets[steps[i + SHEET]].text(steps[i + SRC_ROW], steps[i + SRC_COL]);
+                    text = value == null ? "" : value;
+                    break;
+                case NEGATE:
+                    text = formatter.format(-valueOrZero(sheets[steps[i + SHEET]], steps[i + SRC_ROW], steps[i + SRC_COL]), scales[format]);
+                    break;
+                default:
+                    double number = valueOrZero(sheets[steps[i + SHEET]], steps[i + SRC_ROW], steps[i + SRC_COL]);
+                    text = formatter.format(number / divisors[format] + offsets[format], scales[format]);
+                    break;
+            }
+            writer.write(table, steps[i + DST_ROW], steps[i + DST_COL], text);
+        }
+    }
+
+    //计算由单元格得到的占位符（如最大电压偏差），写入替换表
+    void putPlaceholders(MeasurementMatrix[] sheets, Map<String, String> replaceMap) {
+        DecimalFormatter formatter = new DecimalFormatter();
+        for (int i = 0; i < placeholderNames.length; i++) {
+            int[] cells = placeholderCells[i];
+            MeasurementMatrix sheet = sheets[placeholderSheet[i]];
+            double result = placeholderMax[i] ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+            for (int j = 0; j < cells.length; j += 2) {
+                double v = valueOrZero(sheet, cells[j], cells[j + 1]);
+                result = placeholderMax[i] ? Math.max(result, v) : Math.min(result, v);
+            }
+            if (cells.length > 0) {
+                replaceMap.put(placeholderNames[i], formatter.format(result, placeholderScale[i]));
+            }
+        }
+    }
+
+    //源单元格数值，缺失或非数字时按 0 输出
+    private static double valueOrZero(MeasurementMatrix sheet, int row, int col) {
+        double v = sheet.value(row, col);
+        return Double.isNaN(v) ? 0.0 : v;
+    }
+
+    private static byte kindOf(String format) {
+        if (format == null || "number".equalsIgnoreCase(format)) {
+            return NUMBER;
+        }
+        if ("text".equalsIgnoreCase(format)) {
+            return TEXT;
+        }
+        if ("negate".equalsIgnoreCase(format)) {
+            return NEGATE;
+        }
+        throw new IllegalStateException("不支持的单元格格式：" + format);
+    }
+
+    //编译过程中的可变状态
+    private static class Builder {
+        private final TableLayout layout;
+        private final List<String> titles = new ArrayList<>();
+        private final List<Integer> tableStart = new ArrayList<>();
+        private int[] steps = new int[STRIDE * 256];
+        private int stepCount;
+        private byte[] kinds = new byte[16];
+        private int[] scales = new int[16];
+        private double[] divisors = new double[16];
+        private double[] offsets = new double[16];
+        private String[] constants = new String[16];
+        private int formatCount;
+
+        Builder(TableLayout layout) {
+            this.layout = layout;
+        }
+
+        int sheetIndex(String sheet) {
+            int index = layout.getSheets().indexOf(sheet);
+            if (index < 0) {
+                throw new IllegalStateException("表格映射引用了未声明的工作表：" + sheet);
+            }
+            return index;
+        }
+
+        void step(int sheet, int srcRow, int srcCol, int dstRow, int dstCol, int format) {
+            if (stepCount + STRIDE > steps.length) {
+                steps = Arrays.copyOf(steps, steps.length * 2);
+            }
+            steps[stepCount + SHEET] = sheet;
+            steps[stepCount + SRC_ROW] = srcRow;
+            steps[stepCount + SRC_COL] = srcCol;
+            steps[stepCount + DST_ROW] = dstRow;
+            steps[stepCount + DST_COL] = dstCol;
+            steps[stepCount + FORMAT] = format;
+            stepCount += STRIDE;
+        }
+
+        //相同的格式只登记一次
+        int format(byte kind, int scale, double divisor, double offset, String constant) {
+            for (int i = 0; i < formatCount; i++) {
+                if (kinds[i] == kind && scales[i] == scale && divisors[i] == divisor && offsets[i] == offset
+                        && java.util.Objects.equals(constants[i], constant)) {
+                    return i;
+                }
+            }
+            if (formatCount == kinds.length) {
+                int size = kinds.length * 2;
+                kinds = Arrays.copyOf(kinds, size);
+                scales = Arrays.copyOf(scales, size);
+                divisors = Arrays.copyOf(divisors, size);
+                offsets = Arrays.copyOf(offsets, size);
+                constants = Arrays.copyOf(constants, size);
+            }
+            kinds[formatCount] = kind;
+            scales[formatCount] = scale;
+            divisors[formatCount] = divisor;
+            offsets[formatCount] = offset;
+            constants[formatCount] = constant;
+            return formatCount++;
+        }
+    }
+}
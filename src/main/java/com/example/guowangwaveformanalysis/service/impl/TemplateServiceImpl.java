@@ -0,0 +1,254 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import com.example.guowangwaveformanalysis.service.TemplateService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Word 模板登记与缓存：模板按内容的 SHA-256 登记，相同模板只保存一份；每个模板在后台保留 warmCopies 份预解析的
+ * XWPFDocument，生成报告时直接取用。缓存上限（report.template.cache-max-bytes）按原始字节加上预解析副本的估算
+ * 占用计算，超过时按最久未用淘汰，被排队任务锁定（pin）的模板和最近使用的模板不淘汰。副本的估算按解压后的 XML 部件大小计算，图片等二进制部件解析时不展开，只计一次原始字节。
+ */
+@Slf4j
+@Service
+public class TemplateServiceImpl implements TemplateService {
+
+    //一份解析后的 XWPFDocument 约为 1 MiB 固定开销加解压后 XML 部件大小的 3～9 倍
+    //（实测 XML 16 KB 的模板约 1.0 MB，103 KB 约 1.4 MB，含图表共 137 KB 约 2.2 MB），按偏大估算
+    private static final long PARSED_BASE_BYTES = 1024 * 1024;
+    private static final long PARSED_BYTES_PER_XML_BYTE = 10;
+
+    private final long maxCacheBytes;
+    private final int warmCopies;
+
+    //按访问顺序排列，最久未用的模板最先淘汰
+    private final LinkedHashMap<String, TemplateEntry> templates = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    //后台预解析线程：请求取走一份副本后，在后台补解析下一份，解析开销不落在请求线程上
+    private final ExecutorService warmer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "template-warmer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public TemplateServiceImpl(@Value("${report.template.cache-max-bytes:67108864}") long maxCacheBytes,
+                               @Value("${report.template.warm-copies:2}") int warmCopies) {
+        this.maxCacheBytes = maxCacheBytes;
+        this.warmCopies = warmCopies;
+    }
+
+    @Override
+    public String register(MultipartFile templateFile) throws IOException {
+        byte[] content;
+        try (InputStream in = templateFile.getInputStream()) {
+            content = in.readAllBytes();
+        }
+        String templateId = sha256(content);
+        synchronized (templates) {
+            if (templates.get(templateId) != null) {
+                return templateId;
+            }
+        }
+        // 首次登记时解析一次：既校验模板合法，也作为第一份预解析副本
+        XWPFDocument parsed = parse(content);
+        TemplateEntry entry = new TemplateEntry(templateId, content, weightOf(content));
+        entry.warm.offer(parsed);
+        entry.warmCount.incrementAndGet();
+        synchronized (templates) {
+            if (templates.containsKey(templateId)) {
+                closeQuietly(parsed);
+                return templateId;
+            }
+            templates.put(templateId, entry);
+            cachedBytes += entry.weight;
+            evictIfNecessary();
+        }
+        log.info("模板已登记：{}（{} 字节，含预解析副本约 {} 字节）", templateId, content.length, entry.weight);
+        scheduleWarmUp(entry);
+        return templateId;
+    }
+
+    @Override
+    public String resolve(MultipartFile templateFile, String templateId) throws IOException {
+        if (templateFile != null && !templateFile.isEmpty()) {
+            return register(templateFile);
+        }
+        if (templateId == null || templateId.isEmpty()) {
+            throw new IllegalArgumentException("请上传模板文件或指定 templateId");
+        }
+        return templateId;
+    }
+
+    @Override
+    public XWPFDocument open(String templateId) throws IOException {
+        TemplateEntry entry;
+        synchronized (templates) {
+            entry = templates.get(templateId);
+        }
+        if (entry == null) {
+            throw new IllegalArgumentException("模板不存在或已过期，请重新上传：" + templateId);
+        }
+        XWPFDocument doc = entry.warm.poll();
+        if (doc != null) {
+            entry.warmCount.decrementAndGet();
+        } else {
+            doc = parse(entry.content);
+        }
+        scheduleWarmUp(entry);
+        return doc;
+    }
+
+    @Override
+    public void pin(String templateId) {
+        synchronized (templates) {
+            TemplateEntry entry = templates.get(templateId);
+            if (entry == null) {
+                throw new IllegalArgumentException("模板不存在或已过期，请重新上传：" + templateId);
+            }
+            entry.pins++;
+        }
+    }
+
+    @Override
+    public void unpin(String templateId) {
+        synchronized (templates) {
+            TemplateEntry entry = templates.get(templateId);
+            if (entry != null && entry.pins > 0) {
+                entry.pins--;
+                // 锁定期间可能超出上限，解锁后补做淘汰
+                evictIfNecessary();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        warmer.shutdownNow();
+        synchronized (templates) {
+            templates.values().forEach(this::discard);
+            templates.clear();
+            cachedBytes = 0;
+        }
+    }
+
+    //补足预解析副本
+    private void scheduleWarmUp(TemplateEntry entry) {
+        if (entry.warmCount.get() >= warmCopies || warmer.isShutdown()) {
+            return;
+        }
+        warmer.execute(() -> {
+            while (!entry.evicted && entry.warmCount.get() < warmCopies) {
+                try {
+                    entry.warm.offer(parse(entry.content));
+                    entry.warmCount.incrementAndGet();
+                } catch (IOException e) {
+                    log.warn("模板预解析失败：{}", entry.templateId, e);
+                    return;
+                }
+            }
+            if (entry.evicted) {
+                discard(entry);
+            }
+        });
+    }
+
+    //超过缓存上限时从最久未用的开始淘汰，跳过被锁定的模板，最近使用的一个始终保留
+    private void evictIfNecessary() {
+        Iterator<TemplateEntry> it = templates.values().iterator();
+        while (cachedBytes > maxCacheBytes && it.hasNext()) {
+            TemplateEntry eldest = it.next();
+            if (eldest.pins > 0 || !it.hasNext()) {
+                continue;
+            }
+            it.remove();
+            cachedBytes -= eldest.weight;
+            discard(eldest);
+            log.info("模板缓存已满，淘汰模板：{}", eldest.templateId);
+        }
+    }
+
+    //模板在缓存中的估算占用：原始字节加 warmCopies 份解析后的文档
+    private long weightOf(byte[] content) {
+        return content.length + warmCopies * (PARSED_BASE_BYTES + PARSED_BYTES_PER_XML_BYTE * xmlBytes(content));
+    }
+
+    //docx 中各 XML 部件解压后的总字节数（按实际读出的字节计，不信任 zip 头中的大小）；无法按 zip 读取时按原始大小计
+    static long xmlBytes(byte[] content) {
+        long total = 0;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(content))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (!entry.isDirectory() && entry.getName().endsWith(".xml")) {
+                    total += zip.transferTo(OutputStream.nullOutputStream());
+                }
+            }
+        } catch (IOException e) {
+            return content.length;
+        }
+        return total;
+    }
+
+    private void discard(TemplateEntry entry) {
+        entry.evicted = true;
+        XWPFDocument doc;
+        while ((doc = entry.warm.poll()) != null) {
+            entry.warmCount.decrementAndGet();
+            closeQuietly(doc);
+        }
+    }
+
+    private static XWPFDocument parse(byte[] content) throws IOException {
+        return new XWPFDocument(new ByteArrayInputStream(content));
+    }
+
+    private static void closeQuietly(XWPFDocument doc) {
+        try {
+            doc.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class TemplateEntry {
+        private final String templateId;
+        private final byte[] content;
+        private final long weight;
+        private final Queue<XWPFDocument> warm = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger warmCount = new AtomicInteger();
+        private volatile boolean evicted;
+        //排队任务的锁定次数，在 templates 上同步访问
+        private int pins;
+
+        private TemplateEntry(String templateId, byte[] content, long weight) {
+            this.templateId = templateId;
+            this.content = content;
+            this.weight = weight;
+        }
+    }
+}
@@ -1,25 +1,56 @@
 package com.example.guowangwaveformanalysis.service.impl;
 
+import com.example.guowangwaveformanalysis.pojo.ExcelSheetData;
+import com.example.guowangwaveformanalysis.pojo.MeasurementMatrix;
+import com.example.guowangwaveformanalysis.pojo.ReportDocument;
+import com.example.guowangwaveformanalysis.pojo.ReportStage;
+import com.example.guowangwaveformanalysis.pojo.TableLayout;
+import com.example.guowangwaveformanalysis.service.HistoryService;
+import com.example.guowangwaveformanalysis.service.ReportStoreService;
+import com.example.guowangwaveformanalysis.service.TemplateService;
 import com.example.guowangwaveformanalysis.service.XlsService;
-import lombok.Getter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
 import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlOptions;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTRow;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTbl;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTc;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import org.apache.poi.xwpf.usermodel.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
-import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 import org.apache.poi.util.Units;
 
 import cn.hutool.poi.excel.ExcelReader;
 import cn.hutool.poi.excel.ExcelUtil;
-import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.ss.util.CellRangeAddress;
 
 @Service
@@ -27,16 +58,134 @@ public class XlsServiceImpl implements XlsService {
 
     //日志对象
     private static Logger log = LoggerFactory.getLogger(XlsServiceImpl.class);
-    //输出目录和文件名
-    private static final String OUTPUT_DIR = "outputs";
-    private static final String OUTPUT_FILE_NAME = "output.docx";
+
+    //报告存储，每次生成都发布为独立文件，并发请求互不覆盖
+    @Autowired
+    private ReportStoreService reportStore;
+
+    //模板缓存，同一模板只解析一次
+    @Autowired
+    private TemplateService templateService;
+
+    //插图缩放、重新编码
+    @Autowired
+    private ImagePreprocessor imagePreprocessor;
+
+    //报告生成代码的版本，修改格式化、填表、样式、限值比较等影响报告内容的代码时递增，使结果缓存中的旧报告失效
+    static final int OUTPUT_VERSION = 1;
+
+    //插图在文档中的显示尺寸（像素）
+    private static final int IMAGE_WIDTH_PX = 400;
+    private static final int IMAGE_HEIGHT_PX = 250;
+
+    //各阶段耗时、内存分配等指标
+    @Autowired
+    private ReportMetrics metrics;
+
+    //单份报告内并行解析各工作表、并行填充各表格
+    @Autowired(required = false)
+    private ForkJoinPool reportForkJoinPool;
+    @Value("${report.parallel:true}")
+    private boolean parallel = true;
+
+    //虚拟线程模式（virtual-threads profile）下解析、填充在此平台线程池中执行，其他情况下为 null
+    @Autowired(required = false)
+    @Qualifier("reportCpuExecutor")
+    private ExecutorService reportCpuExecutor;
+
+    //报告结果缓存，关闭（report.cache.enabled=false）时为 null
+    @Autowired(required = false)
+    private ReportResultCache resultCache;
+
+    //数据集缓存，关闭（report.dataset.enabled=false）时为 null
+    @Autowired(required = false)
+    private DatasetCache datasetCache;
+
+    //历史测量库，关闭（report.history.enabled=false）时为 null
+    @Autowired(required = false)
+    private HistoryService historyService;
+
+    //表格映射配置，启动时编译为填表计划
+    @Value("${report.mapping.location:classpath:mapping/default-layout.json}")
+    private Resource mappingLocation;
+    private TableMappingPlan mappingPlan;
+    //原始时间序列统计计划，映射配置中没有 series 时为 null
+    private SeriesPlan seriesPlan;
+    //{{chart:name}} 处生成的图表
+    private ChartPlan chartPlan;
+    //测量值与限值的比较
+    private CompliancePlan compliancePlan;
+    //映射配置内容的摘要，作为结果缓存键的一部分，配置变更后旧结果不再命中
+    private String mappingDigest;
+
+    //以下包内可见的方法供基准测试（ReportStageBenchmark）按阶段单独调用
+    TableMappingPlan getMappingPlan() {
+        return mappingPlan;
+    }
+
+    CompliancePlan getCompliancePlan() {
+        return compliancePlan;
+    }
+
+    //Excel读取方式：streaming（SAX流式，仅保留报告所需区域）或 dom（hutool 整本加载）
+    @Value("${report.excel.reader:streaming}")
+    private String excelReaderMode = "streaming";
+    //流式读取时保留的行数、列数，需覆盖表格映射配置读取的最大行列
+    @Value("${report.excel.max-rows:100}")
+    private int excelMaxRows = 100;
+    @Value("${report.excel.max-cols:32}")
+    private int excelMaxCols = 32;
+
+    @PostConstruct
+    public void compileMapping() throws IOException {
+        try (InputStream in = mappingLocation.getInputStream()) {
+            byte[] content = in.readAllBytes();
+            mappingDigest = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+            TableLayout layout = new ObjectMapper().readValue(content, TableLayout.class);
+            mappingPlan = TableMappingPlan.compile(layout);
+            seriesPlan = SeriesPlan.compile(layout.getSeries(), layout.getSheets());
+            chartPlan = ChartPlan.compile(layout.getCharts(), layout.getSheets());
+            compliancePlan = CompliancePlan.compile(layout);
+            log.info("表格映射已加载：{}（{} 张表）", mappingPlan.getName(), mappingPlan.getTableCount());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 
     @Override
     public String processExcelFile(MultipartFile excelFile, MultipartFile templateFile, MultipartFile[] images, Map<String, String> replaceMap, List<Map<String, String>> measurementList) throws Exception {
-        try (InputStream excelStream = excelFile.getInputStream();
-             InputStream templateStream = templateFile.getInputStream()) {
-            ExcelSheetData data = parseExcelFromStream(excelStream);
-            String outputPath = generateWordDocument(data, templateStream, images, replaceMap, measurementList);
+        String templateId = templateService.register(templateFile);
+        return processExcelFile(excelFile, templateId, images, replaceMap, measurementList);
+    }
+
+    @Override
+    public String processExcelFile(MultipartFile excelFile, String templateId, MultipartFile[] images, Map<String, String> replaceMap, List<Map<String, String>> measurementList) throws Exception {
+        return processExcelFile(excelFile, templateId, images, replaceMap, measurementList, stage -> { });
+    }
+
+    @Override
+    public String processExcelFile(MultipartFile excelFile, String templateId, MultipartFile[] images, Map<String, String> replaceMap, List<Map<String, String>> measurementList, Consumer<ReportStage> progress) throws Exception {
+        // 输入与之前某次完全相同时直接复制那次的报告；键在填充前计算，填充会向 replaceMap 写入计算出的字段
+        String cacheKey = null;
+        if (resultCache != null) {
+            cacheKey = resultCache.keyOf(excelFile, templateId, images, replaceMap, measurementList, outputSettings());
+            String cached = resultCache.publish(cacheKey);
+            if (cached != null) {
+                String outputPath = reportStore.resolve(cached).toString();
+                log.info("输入与已生成的报告相同，直接复制：{}", outputPath);
+                return outputPath;
+            }
+        }
+        try (ReportMetrics.Recording recording = metrics.start(progress);
+             ReportDocument report = onCpuPool(() -> buildReport(excelFile, templateId, images, replaceMap, measurementList, 1, recording))) {
+            recording.accept(ReportStage.WRITE);
+            String fileName = onCpuPool(() -> reportStore.publish(report.getDocument()::write));
+            Path output = reportStore.resolve(fileName);
+            if (cacheKey != null) {
+                resultCache.put(cacheKey, output);
+            }
+            String outputPath = output.toString();
+            recording.succeed();
             log.info("Word文档已生成：{}", outputPath);
             return outputPath;
         } catch (Exception e) {
@@ -45,40 +194,281 @@ public class XlsServiceImpl implements XlsService {
         }
     }
 
+    @Override
+    public void writeReport(MultipartFile excelFile, String templateId, MultipartFile[] images, Map<String, String> replaceMap, List<Map<String, String>> measurementList, ReportSink sink) throws Exception {
+        try (ReportMetrics.Recording recording = metrics.start(stage -> { });
+             ReportDocument report = onCpuPool(() -> buildReport(excelFile, templateId, images, replaceMap, measurementList, 1, recording))) {
+            recording.accept(ReportStage.WRITE);
+            if (reportCpuExecutor == null) {
+                OutputStream out = sink.open(report);
+                report.getDocument().write(out);
+                out.flush();
+            } else {
+                // 序列化在 CPU 线程池中写到临时文件，调用方（虚拟线程）只负责把文件发给客户端
+                Path temp = Files.createTempFile("report-", ".docx");
+                try {
+                    onCpuPool(() -> {
+                        try (OutputStream out = Files.newOutputStream(temp)) {
+                            report.getDocument().write(out);
+                        }
+                        return temp;
+                    });
+                    OutputStream out = sink.open(report);
+                    Files.copy(temp, out);
+                    out.flush();
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+            recording.succeed();
+        }
+    }
+
+    @Override
+    public ReportDocument buildReport(MultipartFile excelFile, String templateId, MultipartFile[] images, Map<String, String> replaceMap, List<Map<String, String>> measurementList, int chapter) throws Exception {
+        try (ReportMetrics.Recording recording = metrics.start(stage -> { })) {
+            ReportDocument report = buildReport(excelFile, templateId, images, replaceMap, measurementList, chapter, recording);
+            recording.succeed();
+            return report;
+        }
+    }
+
+    @Override
+    public String registerDataset(MultipartFile excelFile) throws Exception {
+        if (datasetCache == null) {
+            throw new IllegalStateException("数据集缓存未启用");
+        }
+        metrics.excelSize(excelFile.getSize());
+        ExcelSheetData data = onCpuPool(() -> parseExcel(excelFile));
+        metrics.rowsParsed(data.getRowCount());
+        return datasetCache.put(data);
+    }
+
+    @Override
+    public String renderDataset(String datasetId, String templateId, MultipartFile[] images, Map<String, String> replaceMap, List<Map<String, String>> measurementList) throws Exception {
+        ExcelSheetData data = datasetCache == null ? null : datasetCache.get(datasetId);
+        if (data == null) {
+            return null;
+        }
+        try (ReportMetrics.Recording recording = metrics.start(stage -> { });
+             ReportDocument report = onCpuPool(() -> fillReport(data, templateId, images, replaceMap, measurementList, 1, recording))) {
+            recording.accept(ReportStage.WRITE);
+            String outputPath = reportStore.resolve(onCpuPool(() -> reportStore.publish(report.getDocument()::write))).toString();
+            recording.succeed();
+            log.info("Word文档已按数据集 {} 重新生成：{}", datasetId, outputPath);
+            return outputPath;
+        }
+    }
+
+    //解析、填充、序列化文档等 CPU 密集的部分：虚拟线程模式下交给有界的平台线程池，调用方（虚拟线程）等待期间不占用载体线程；
+    //XMLBeans 保存文档时在 synchronized 块中，放在虚拟线程上会钉住载体线程
+    private <T> T onCpuPool(Callable<T> task) throws Exception {
+        if (reportCpuExecutor == null) {
+            return task.call();
+        }
+        try {
+            return reportCpuExecutor.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("报告生成被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw (Error) e.getCause();
+        }
+    }
+
+    //影响报告内容的服务端配置：代码版本（含构建版本）、表格映射、插图处理参数
+    private String outputSettings() {
+        return OUTPUT_VERSION + "/" + XlsServiceImpl.class.getPackage().getImplementationVersion() + ";"
+                + mappingDigest + ";" + imagePreprocessor.settings();
+    }
+
+    //把本次监测的统计值存入历史测量库，失败不影响报告生成
+    private void recordHistory(ExcelSheetData data, Map<String, String> replaceMap, String monitorPosition) {
+        if (historyService == null || seriesPlan == null) {
+            return;
+        }
+        try {
+            historyService.record(replaceMap.get("testSite"), monitorPosition, dateOf(replaceMap, "start"),
+                    dateOf(replaceMap, "end"), seriesPlan.historyColumns(), seriesPlan.historyValues(data));
+        } catch (IOException | RuntimeException e) {
+            log.warn("保存历史测量值失败：{}", monitorPosition, e);
+        }
+    }
+
+    //由 startYear、startMonth、startDay 等字段得到日期，不全或无效时为 null
+    private static LocalDate dateOf(Map<String, String> replaceMap, String prefix) {
+        try {
+            return LocalDate.of(Integer.parseInt(replaceMap.get(prefix + "Year").trim()),
+                    Integer.parseInt(replaceMap.get(prefix + "Month").trim()),
+                    Integer.parseInt(replaceMap.get(prefix + "Day").trim()));
+        } catch (NullPointerException | NumberFormatException | DateTimeException e) {
+            return null;
+        }
+    }
+
+    //解析Excel并填充模板副本
+    private ReportDocument buildReport(MultipartFile excelFile, String templateId, MultipartFile[] images, Map<String, String> replaceMap, List<Map<String, String>> measurementList, int chapter, Consumer<ReportStage> progress) throws Exception {
+        progress.accept(ReportStage.PARSE);
+        metrics.excelSize(excelFile.getSize());
+        ExcelSheetData data = parseExcel(excelFile);
+        metrics.rowsParsed(data.getRowCount());
+        return fillReport(data, templateId, images, replaceMap, measurementList, chapter, progress);
+    }
+
+    //用已解析的数据填充模板副本
+    private ReportDocument fillReport(ExcelSheetData data, String templateId, MultipartFile[] images, Map<String, String> replaceMap, List<Map<String, String>> measurementList, int chapter, Consumer<ReportStage> progress) throws IOException {
+        XWPFDocument doc = templateService.open(templateId);
+        try {
+            String monitorPosition = fillWordDocument(data, doc, images, replaceMap, measurementList, chapter, progress);
+            recordHistory(data, replaceMap, monitorPosition);
+            return new ReportDocument(doc, monitorPosition);
+        } catch (Exception e) {
+            doc.close();
+            throw e;
+        }
+    }
+
+    //解析上传的Excel；流式模式下按磁盘文件读取，不把整个上传读进内存
+    private ExcelSheetData parseExcel(MultipartFile excelFile) throws IOException {
+        if (!"streaming".equalsIgnoreCase(excelReaderMode)) {
+            try (InputStream excelStream = excelFile.getInputStream()) {
+                return parseExcelFromStream(excelStream);
+            }
+        }
+        if (excelFile instanceof SpooledMultipartFile) {
+            return parseExcelFromPath(((SpooledMultipartFile) excelFile).getPath());
+        }
+        // transferTo(File) 经 Part.write 执行，Tomcat 对已落盘的上传部分改名而不复制（同一文件系统时），内存中的小文件则写出一份；
+        // transferTo(Path) 在 spring-web 中总是按流整份复制，不能用
+        Path temp = Files.createTempFile("excel-", ".upload");
+        try {
+            excelFile.transferTo(temp.toFile());
+            return parseExcelFromPath(temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private ExcelSheetData parseExcelFromPath(Path excelFile) throws IOException {
+        FileMagic magic;
+        try (InputStream in = FileMagic.prepareToCheckMagic(Files.newInputStream(excelFile))) {
+            magic = FileMagic.valueOf(in);
+        }
+        if (magic != FileMagic.OOXML) {
+            try (InputStream in = Files.newInputStream(excelFile)) {
+                return parseExcelWithWorkbook(in);
+            }
+        }
+        SeriesStatistics statistics = newSeriesStatistics();
+        Map<String, StreamingExcelReader.SheetRows> sheets = excelReader()
+                .read(excelFile, Arrays.asList(mappingPlan.getSheetNames()), seriesSheetName(), statistics);
+        return fromSheetRows(sheets, statistics);
+    }
 
     //从Excel输入流中解析需要的数据，封装到ExcelSheetData对象
-    private ExcelSheetData parseExcelFromStream(InputStream excelStream) {
-        ExcelSheetData data = new ExcelSheetData();
+    ExcelSheetData parseExcelFromStream(InputStream excelStream) throws IOException {
+        InputStream in = FileMagic.prepareToCheckMagic(excelStream);
+        // 流式读取只支持 xlsx，老的 xls 仍走 hutool
+        if ("streaming".equalsIgnoreCase(excelReaderMode) && FileMagic.valueOf(in) == FileMagic.OOXML) {
+            return parseExcelStreaming(in);
+        }
+        return parseExcelWithWorkbook(in);
+    }
+
+    //hutool 加载整本工作簿
+    private ExcelSheetData parseExcelWithWorkbook(InputStream excelStream) {
+        Map<String, List<List<Object>>> sheets = new LinkedHashMap<>();
+        SeriesStatistics statistics = null;
         ExcelReader reader = ExcelUtil.getReader(excelStream);
         try {
-            reader.setSheet("电压谐波");
-            List<List<Object>> voltageData = reader.read();
-            processMergedCells(voltageData, reader.getSheet());
-            data.getVoltageHarmonicData().addAll(voltageData);
-
-            reader.setSheet("电流谐波");
-            List<List<Object>> currentData = reader.read();
-            processMergedCells(currentData, reader.getSheet());
-            data.getCurrentHarmonicData().addAll(currentData);
-
-            reader.setSheet("功率");
-            List<List<Object>> powerData = reader.read();
-            processMergedCells(powerData, reader.getSheet());
-            data.getPowerData().addAll(powerData);
+            for (String sheetName : mappingPlan.getSheetNames()) {
+                if (!reader.getSheetNames().contains(sheetName)) {
+                    continue;
+                }
+                reader.setSheet(sheetName);
+                List<List<Object>> rows = reader.read();
+                processMergedCells(rows, reader.getSheet().getMergedRegions());
+                sheets.put(sheetName, rows);
+            }
+            if (seriesPlan != null && reader.getSheetNames().contains(seriesPlan.getSheetName())) {
+                statistics = seriesPlan.newStatistics();
+                reader.setSheet(seriesPlan.getSheetName());
+                statistics.accept(reader.read());
+            }
         } finally {
             reader.close();
         }
+        return toSheetData(sheets, statistics);
+    }
+
+    //SAX 流式读取，只保留前 excelMaxRows 行、前 excelMaxCols 列
+    private ExcelSheetData parseExcelStreaming(InputStream excelStream) throws IOException {
+        SeriesStatistics statistics = newSeriesStatistics();
+        Map<String, StreamingExcelReader.SheetRows> sheets = excelReader()
+                .read(excelStream, Arrays.asList(mappingPlan.getSheetNames()), seriesSheetName(), statistics);
+        return fromSheetRows(sheets, statistics);
+    }
+
+    private StreamingExcelReader excelReader() {
+        return new StreamingExcelReader(excelMaxRows, excelMaxCols, parallelPool());
+    }
+
+    //单核或关闭并行时返回 null，各阶段按顺序执行，省去复制和线程切换的开销
+    private ForkJoinPool parallelPool() {
+        if (!parallel || reportForkJoinPool == null || reportForkJoinPool.getParallelism() < 2) {
+            return null;
+        }
+        return reportForkJoinPool;
+    }
+
+    private SeriesStatistics newSeriesStatistics() {
+        return seriesPlan == null ? null : seriesPlan.newStatistics();
+    }
+
+    private String seriesSheetName() {
+        return seriesPlan == null ? null : seriesPlan.getSheetName();
+    }
+
+    private ExcelSheetData fromSheetRows(Map<String, StreamingExcelReader.SheetRows> sheets, SeriesStatistics statistics) {
+        Map<String, List<List<Object>>> rows = new LinkedHashMap<>();
+        for (Map.Entry<String, StreamingExcelReader.SheetRows> entry : sheets.entrySet()) {
+            processMergedCells(entry.getValue().rows, entry.getValue().mergedRegions);
+            rows.put(entry.getKey(), entry.getValue().rows);
+        }
+        return toSheetData(rows, statistics);
+    }
+
+    //有原始时间序列时先把统计结果写入统计工作表，再统一转换
+    private ExcelSheetData toSheetData(Map<String, List<List<Object>>> sheets, SeriesStatistics statistics) {
+        if (statistics != null && statistics.getRows() > 0) {
+            seriesPlan.overlay(statistics, sheets);
+            log.info("原始时间序列已统计：{} 行", statistics.getRows());
+        }
+        ExcelSheetData data = new ExcelSheetData();
+        for (String sheetName : mappingPlan.getSheetNames()) {
+            List<List<Object>> rows = sheets.get(sheetName);
+            if (rows == null) {
+                throw new IllegalArgumentException("Excel中缺少工作表：" + sheetName);
+            }
+            data.putSheet(sheetName, MeasurementMatrix.of(rows));
+        }
         return data;
     }
 
     //处理Excel中的合并单元格，将其拆分或填充成适于后续处理的标准二维表数据
-    private void processMergedCells(List<List<Object>> sheetData, Sheet sheet) {
-        List<CellRangeAddress> mergedRegions = sheet.getMergedRegions();
+    void processMergedCells(List<List<Object>> sheetData, List<CellRangeAddress> mergedRegions) {
         for (CellRangeAddress region : mergedRegions) {
             int firstRow = region.getFirstRow();
             int lastRow = region.getLastRow();
             int firstCol = region.getFirstColumn();
             int lastCol = region.getLastColumn();
+            // 流式读取只保留了部分行列，区域左上角不在已读范围内时跳过
+            if (firstRow >= sheetData.size() || firstCol >= sheetData.get(firstRow).size()) {
+                continue;
+            }
             Object value = sheetData.get(firstRow).get(firstCol);
             for (int row = firstRow; row <= lastRow; row++) {
                 for (int col = firstCol; col <= lastCol; col++) {
@@ -93,52 +483,21 @@ public class XlsServiceImpl implements XlsService {
     }
 
     // ======== 全局字段批量替换 =======
-    private void replacePlaceholders(XWPFDocument doc, Map<String, String> replaceMap) {
-        // 段落
-        for (XWPFParagraph para : doc.getParagraphs()) {
-            for (XWPFRun run : para.getRuns()) {
-                String text = run.getText(0);
-                if (text != null) {
-                    for (Map.Entry<String, String> entry : replaceMap.entrySet()) {
-                        if (text.contains("{{" + entry.getKey() + "}}")) {
-                            text = text.replace("{{" + entry.getKey() + "}}", entry.getValue());
-                        }
-                    }
-                    run.setText(text, 0);
-                }
-            }
-        }
-        // 表格
-        for (XWPFTable table : doc.getTables()) {
-            for (XWPFTableRow row : table.getRows()) {
-                for (XWPFTableCell cell : row.getTableCells()) {
-                    for (XWPFParagraph para : cell.getParagraphs()) {
-                        for (XWPFRun run : para.getRuns()) {
-                            String text = run.getText(0);
-                            if (text != null) {
-                                for (Map.Entry<String, String> entry : replaceMap.entrySet()) {
-                                    if (text.contains("{{" + entry.getKey() + "}}")) {
-                                        text = text.replace("{{" + entry.getKey() + "}}", entry.getValue());
-                                    }
-                                }
-                                run.setText(text, 0);
-                            }
-                        }
-                    }
-                }
-            }
-        }
+    int replacePlaceholders(XWPFDocument doc, Map<String, String> replaceMap) {
+        return new PlaceholderReplacer(replaceMap).replace(doc);
     }
 
-    //根据解析后的数据 data 和 Word 模板 templateStream，生成最终输出的 Word 报告文档。
-    private String generateWordDocument(
+    //根据解析后的数据 data 填充 Word 模板副本 doc，返回监测位置。chapter 为表格标题的章节号。
+    private String fillWordDocument(
             ExcelSheetData data,
-            InputStream templateStream,
+            XWPFDocument doc,
             MultipartFile[] images,
             Map<String, String> replaceMap,
-            List<Map<String, String>> measurementList
-    ) throws IOException {
-        XWPFDocument doc = new XWPFDocument(templateStream);
+            List<Map<String, String>> measurementList,
+            int chapter,
+            Consumer<ReportStage> progress
+    ) {
+        progress.accept(ReportStage.FILL_TABLES);
 
         // 拼接仪器参数，形如“仪器1 证书1 日期1\n仪器2 证书2 日期2”
         if (measurementList != null && !measurementList.isEmpty()) {
@@ -156,459 +515,161 @@ public class XlsServiceImpl implements XlsService {
             replaceMap.put("measurement", ""); // 防止占位符未被替换
         }
 
+        MeasurementMatrix[] sheets = mappingPlan.resolveSheets(data);
+
+        // 由单元格计算的占位符（如最大电压偏差）及限值比较结论需在替换前算好
+        mappingPlan.putPlaceholders(sheets, replaceMap);
+        CompliancePlan.Result compliance = compliancePlan.evaluate(sheets);
+        replaceMap.put(CompliancePlan.SUMMARY_PLACEHOLDER, compliance.summary());
+
         // 替换所有 {{xxx}} 字段
         if (replaceMap != null && !replaceMap.isEmpty()) {
-            System.out.println("替换字段：" + replaceMap);
-            replacePlaceholders(doc, replaceMap);
+            log.debug("替换字段：{}", replaceMap);
+            metrics.placeholdersReplaced(replacePlaceholders(doc, replaceMap));
         }
 
         // 获取监测位置
-        String rawMonitorPosition = data.getVoltageHarmonicData().get(1).get(0).toString();
-        String monitorPosition = rawMonitorPosition.replaceAll(".*[：:]", "").trim();
-
-        // 假设模板中第一个表格是谐波电压表格，第二个表格是谐波电流表格
-        List<XWPFTable> tables = doc.getTables();
-        if (tables.size() >= 4) {
+        String monitorPosition = mappingPlan.monitorPosition(sheets);
 
-            // 谐波电压
-            setTableTitle(doc, tables.get(0), "表1.1  " + monitorPosition + "谐波电压统计表");
-            fillVoltageHarmonicTable(tables.get(0), data.getVoltageHarmonicData(),1.1,doc);
-            // 谐波电流
-            setTableTitle(doc, tables.get(1), "表1.2  " + monitorPosition + "谐波电流统计表");
-            fillCurrentHarmonicTable(tables.get(1), data.getCurrentHarmonicData());
-            //频率偏差、三相电压不平衡度及长时间闪变
-            setTableTitle(doc, tables.get(2), "表1.3  " + monitorPosition + "频率偏差、三相电压不平衡度及长时间闪变统计表");
-            fillFrequencyDeviationAndVoltageUnbalanceAndLongTermFlickerTable(tables.get(2), data.voltageHarmonicData,data.getPowerData());
-            //电压偏差
-            setTableTitle(doc, tables.get(3), "表1.4  " + monitorPosition + "电压偏差统计表");
-            fillVoltageDeviationTable(tables.get(3), data.voltageHarmonicData, replaceMap);
-            System.out.println("maxVoltageDeviation: " + replaceMap.get("maxVoltageDeviation"));
+        // 占位符替换完成后建立一次位置索引，供设置表格标题、插入图片使用
+        DocumentIndex index = DocumentIndex.build(doc);
 
+        // 模板中的表格依次对应映射配置中的表格
+        List<XWPFTable> tables = doc.getTables();
+        if (tables.size() >= mappingPlan.getTableCount()) {
+            for (int i = 0; i < mappingPlan.getTableCount(); i++) {
+                setTableTitle(doc, index, tables.get(i), "表" + chapter + "." + (i + 1) + "  " + monitorPosition + mappingPlan.getTitle(i));
+            }
+            fillTables(tables, sheets, compliance);
         }
 
         // 插入图片
+        progress.accept(ReportStage.IMAGES);
         if (images != null) {
+            int[] types = new int[images.length];
             for (int i = 0; i < images.length; i++) {
+                types[i] = detectImageType(images[i].getOriginalFilename());
+                metrics.imageSize(images[i].getSize());
+            }
+            // 先并行缩放、重新编码，再按顺序插入文档
+            List<ImagePreprocessor.PreparedImage> prepared = imagePreprocessor.prepareAll(images, types, IMAGE_WIDTH_PX, IMAGE_HEIGHT_PX);
+            for (int i = 0; i < images.length; i++) {
+                ImagePreprocessor.PreparedImage image = prepared.get(i);
+                if (image == null) {
+                    continue;
+                }
                 String placeholder = "{{image" + (i + 1) + "}}";
-                try (InputStream imgStream = images[i].getInputStream()) {
-                    insertImageAndModifyCaption(
-                            doc,
+                try {
+                    boolean inserted = insertImageAndModifyCaption(
+                            index,
                             placeholder,
-                            imgStream,
-                            detectImageType(images[i].getOriginalFilename()),
-                            400, 250,    // 这里宽高就是400*250像素
+                            new ByteArrayInputStream(image.data),
+                            image.pictureType,
+                            IMAGE_WIDTH_PX, IMAGE_HEIGHT_PX,
                             monitorPosition
                     );
+                    if (inserted) {
+                        metrics.imageInserted();
+                    }
                 } catch (Exception e) {
                     log.warn("图片插入失败: {}", e.getMessage());
                 }
             }
         }
 
-        File outputDir = new File(OUTPUT_DIR);
-        if (!outputDir.exists()) {
-            outputDir.mkdirs();
-        }
-        String outputPath = OUTPUT_DIR + File.separator + OUTPUT_FILE_NAME;
-        try (FileOutputStream fos = new FileOutputStream(outputPath)) {
-            doc.write(fos);
-        }
-        return outputPath;
-    }
-
-    //谐波电压
-    private void fillVoltageHarmonicTable(XWPFTable table, List<List<Object>> data,double tableNumber, XWPFDocument doc) {
-
-        // 谐波电压数据从Excel读取
-        double AB_average_fundamental = getDoubleValue(data.get(9).get(3));
-        List<Double> AB_average_hruh_list = readColumnRange(data, 3, 10, 33);
-        double AB_average_THD = getDoubleValue(data.get(59).get(3));
-
-        double AB_95_fundamental = getDoubleValue(data.get(9).get(5));
-        List<Double> AB_95_hruh_list = readColumnRange(data, 5, 10, 33);
-        double AB_95_THD = getDoubleValue(data.get(59).get(5));
-
-        double BC_average_fundamental = getDoubleValue(data.get(9).get(8));
-        List<Double> BC_average_hruh_list = readColumnRange(data, 8, 10, 33);
-        double BC_average_THD = getDoubleValue(data.get(59).get(8));
-
-        double BC_95_fundamental = getDoubleValue(data.get(9).get(10));
-        List<Double> BC_95_hruh_list = readColumnRange(data, 10, 10, 33);
-        double BC_95_THD = getDoubleValue(data.get(59).get(10));
-
-        double CA_average_fundamental = getDoubleValue(data.get(9).get(13));
-        List<Double> CA_average_hruh_list = readColumnRange(data, 13, 10, 33);
-        double CA_average_THD = getDoubleValue(data.get(59).get(13));
-
-        double CA_95_fundamental = getDoubleValue(data.get(9).get(15));
-        List<Double> CA_95_hruh_list = readColumnRange(data, 15, 10, 33);
-        double CA_95_THD = getDoubleValue(data.get(59).get(15));
-
-        List<Double> limit_hruh_list = readColumnRange(data, 17, 10, 33);
-        double limit_THD = getDoubleValue(data.get(59).get(17));
-
-
-        // 往docx填充数据
-        if (table.getRows().size() > 2 && table.getRows().get(2).getTableCells().size() > 2) {
-            setCellText(table.getRows().get(2).getCell(1),formatDouble(AB_average_fundamental / 1000, 2));
-        }
-        for (int i = 0; i < AB_average_hruh_list.size(); i++) {
-            if (table.getRows().size() > i + 3 && table.getRows().get(i + 3).getTableCells().size() > 2) {
-                setCellText(table.getRows().get(i + 3).getCell(2),formatDouble(AB_average_hruh_list.get(i), 2));
-            }
-        }
-        if (table.getRows().size() > 27 && table.getRows().get(27).getTableCells().size() > 2) {
-            setCellText(table.getRows().get(27).getCell(1),formatDouble(AB_average_THD, 2));
-        }
-
-        if (table.getRows().size() > 2 && table.getRows().get(2).getTableCells().size() > 3) {
-            setCellText(table.getRows().get(2).getCell(2),formatDouble(AB_95_fundamental / 1000, 2));
-        }
-        for (int i = 0; i < AB_95_hruh_list.size(); i++) {
-            if (table.getRows().size() > i + 3 && table.getRows().get(i + 3).getTableCells().size() > 3) {
-                setCellText(table.getRows().get(i + 3).getCell(3),formatDouble(AB_95_hruh_list.get(i), 2));
-            }
-        }
-        if (table.getRows().size() > 27 && table.getRows().get(27).getTableCells().size() > 3) {
-            setCellText(table.getRows().get(27).getCell(2),formatDouble(AB_95_THD, 2));
-        }
-
-        if (table.getRows().size() > 2 && table.getRows().get(2).getTableCells().size() > 4) {
-            setCellText(table.getRows().get(2).getCell(3),formatDouble(BC_average_fundamental / 1000, 2));
-        }
-        for (int i = 0; i < BC_average_hruh_list.size(); i++) {
-            if (table.getRows().size() > i + 3 && table.getRows().get(i + 3).getTableCells().size() > 4) {
-                setCellText(table.getRows().get(i + 3).getCell(4),formatDouble(BC_average_hruh_list.get(i), 2));
-            }
-        }
-        if (table.getRows().size() > 27 && table.getRows().get(27).getTableCells().size() > 4) {
-            setCellText(table.getRows().get(27).getCell(3),formatDouble(BC_average_THD, 2));
-        }
-
-        if (table.getRows().size() > 2 && table.getRows().get(2).getTableCells().size() > 5) {
-            setCellText(table.getRows().get(2).getCell(4),formatDouble(BC_95_fundamental / 1000, 2));
-        }
-        for (int i = 0; i < BC_95_hruh_list.size(); i++) {
-            if (table.getRows().size() > i + 3 && table.getRows().get(i + 3).getTableCells().size() > 5) {
-                setCellText(table.getRows().get(i + 3).getCell(5),formatDouble(BC_95_hruh_list.get(i), 2));
+        // 由解析出的数据生成原生图表，与图片共用图名处理
+        progress.accept(ReportStage.CHARTS);
+        for (int i = 0; i < chartPlan.getChartCount(); i++) {
+            try {
+                if (insertChartAndModifyCaption(index, i, sheets, IMAGE_WIDTH_PX, IMAGE_HEIGHT_PX, monitorPosition)) {
+                    metrics.chartInserted();
+                }
+            } catch (Exception e) {
+                log.warn("图表生成失败: {}", e.getMessage());
             }
         }
-        if (table.getRows().size() > 27 && table.getRows().get(27).getTableCells().size() > 5) {
-            setCellText(table.getRows().get(27).getCell(4),formatDouble(BC_95_THD, 2));
-        }
 
-        if (table.getRows().size() > 2 && table.getRows().get(2).getTableCells().size() > 6) {
-            setCellText(table.getRows().get(2).getCell(5),formatDouble(CA_average_fundamental / 1000, 2));
-        }
-        for (int i = 0; i < CA_average_hruh_list.size(); i++) {
-            if (table.getRows().size() > i + 3 && table.getRows().get(i + 3).getTableCells().size() > 6) {
-                setCellText(table.getRows().get(i + 3).getCell(6),formatDouble(CA_average_hruh_list.get(i), 2));
-            }
-        }
-        if (table.getRows().size() > 27 && table.getRows().get(27).getTableCells().size() > 6) {
-            setCellText(table.getRows().get(27).getCell(5),formatDouble(CA_average_THD, 2));
-        }
+        return monitorPosition;
+    }
 
-        if (table.getRows().size() > 2 && table.getRows().get(2).getTableCells().size() > 7) {
-            setCellText(table.getRows().get(2).getCell(6),formatDouble(CA_95_fundamental / 1000, 2));
-        }
-        for (int i = 0; i < CA_95_hruh_list.size(); i++) {
-            if (table.getRows().size() > i + 3 && table.getRows().get(i + 3).getTableCells().size() > 7) {
-                setCellText(table.getRows().get(i + 3).getCell(7),formatDouble(CA_95_hruh_list.get(i), 2));
-            }
-        }
-        if (table.getRows().size() > 27 && table.getRows().get(27).getTableCells().size() > 7) {
-            setCellText(table.getRows().get(27).getCell(6),formatDouble(CA_95_THD, 2));
-        }
+    //按映射配置填充第 index 张表，模板中不存在的单元格跳过
+    void fillTable(XWPFTable table, int index, MeasurementMatrix[] sheets) {
+        fillTable(table.getCTTbl(), index, sheets, compliancePlan.evaluate(sheets));
+    }
 
-        // hruh 限值
-        for (int i = 0; i < limit_hruh_list.size(); i++) {
-            if (table.getRows().size() > i + 3 && table.getRows().get(i + 3).getTableCells().size() > 8) {
-                setCellText(table.getRows().get(i + 3).getCell(8),formatDouble(limit_hruh_list.get(i), 2));
+    //直接写表格 XML，不创建 POI 段落、文本块包装对象；行列下标与 XWPFTable#getRow、XWPFTableRow#getCell 一致。超出限值的单元格标红
+    private void fillTable(CTTbl table, int index, MeasurementMatrix[] sheets, CompliancePlan.Result compliance) {
+        mappingPlan.fillTable(index, sheets, (t, row, col, text) -> {
+            if (row < table.sizeOfTrArray()) {
+                CTRow tableRow = table.getTrArray(row);
+                if (col < tableRow.sizeOfTcArray()) {
+                    RunStyle style = compliance.exceeded(t, row, col) ? RunStyle.CELL_EXCEEDED : RunStyle.CELL_VALUE;
+                    style.fillCell(tableRow.getTcArray(col), text);
+                }
             }
-        }
-        //  基波电压限值
-        setCellText(table.getRows().get(2).getCell(7),("—"));
-
-        // thd 限值
-        setCellText(table.getRows().get(27).getCell(7),formatDouble(limit_THD, 2));
+        });
     }
 
-    //谐波电流
-    private void fillCurrentHarmonicTable(XWPFTable table, List<List<Object>> data) {
-
-        // 1. 数据提取
-        double A_average_fundamental = getDoubleValue(data.get(9).get(3));
-        List<Double> A_average_hruh_list = readColumnRange(data, 3, 10, 33);
-        double A_average_THD = getDoubleValue(data.get(59).get(3));
-
-        double A_95_fundamental = getDoubleValue(data.get(9).get(5));
-        List<Double> A_95_hruh_list = readColumnRange(data, 5, 10, 33);
-        double A_95_THD = getDoubleValue(data.get(59).get(5));
-
-        double B_average_fundamental = getDoubleValue(data.get(9).get(8));
-        List<Double> B_average_hruh_list = readColumnRange(data, 8, 10, 33);
-        double B_average_THD = getDoubleValue(data.get(59).get(8));
-
-        double B_95_fundamental = getDoubleValue(data.get(9).get(10));
-        List<Double> B_95_hruh_list = readColumnRange(data, 10, 10, 33);
-        double B_95_THD = getDoubleValue(data.get(59).get(10));
-
-        double C_average_fundamental = getDoubleValue(data.get(9).get(13));
-        List<Double> C_average_hruh_list = readColumnRange(data, 13, 10, 33);
-        double C_average_THD = getDoubleValue(data.get(59).get(13));
-
-        double C_95_fundamental = getDoubleValue(data.get(9).get(15));
-        List<Double> C_95_hruh_list = readColumnRange(data, 15, 10, 33);
-        double C_95_THD = getDoubleValue(data.get(59).get(15));
-
-        List<Double> limit_hruh_list = readColumnRange(data, 17, 10, 33);
-        double limit_THD = getDoubleValue(data.get(59).get(17));
-
-        // 2.填充数据
-        if (table.getRows().size() > 2 && table.getRows().get(2).getTableCells().size() > 2) {
-            setCellText(table.getRows().get(2).getCell(1),formatDouble(A_average_fundamental, 2));
-        }
-        if (table.getRows().size() > 2 && table.getRows().get(2).getTableCells().size() > 3) {
-            setCellText(table.getRows().get(2).getCell(2),formatDouble(A_95_fundamental, 2));
-        }
-        if (table.getRows().size() > 2 && table.getRows().get(2).getTableCells().size() > 4) {
-            setCellText(table.getRows().get(2).getCell(3),formatDouble(B_average_fundamental, 2));
-        }
-        if (table.getRows().size() > 2 && table.getRows().get(2).getTableCells().size() > 5) {
-            setCellText(table.getRows().get(2).getCell(4),formatDouble(B_95_fundamental, 2));
-        }
-        if (table.getRows().size() > 2 && table.getRows().get(2).getTableCells().size() > 6) {
-            setCellText(table.getRows().get(2).getCell(5),formatDouble(C_average_fundamental, 2));
-        }
-        if (table.getRows().size() > 2 && table.getRows().get(2).getTableCells().size() > 7) {
-            setCellText(table.getRows().get(2).getCell(6),formatDouble(C_95_fundamental, 2));
-        }
+    /**
+     * 填充映射配置中的各张表。
+     * 同一文档的 XmlBeans 对象共用一把锁，且 POI 包装对象不是线程安全的，不能在多个线程里直接改同一文档；
+     * 并行时先把每张表的 XML 复制成独立的同步域，各线程分别填写自己的副本，全部完成后在当前线程依次写回。
+     * 填表直接写 XML，XWPFTable 中缓存的行、单元格包装对象此后不再使用。
+     */
+    void fillTables(List<XWPFTable> tables, MeasurementMatrix[] sheets) {
+        fillTables(tables, sheets, compliancePlan.evaluate(sheets));
+    }
 
-        for (int i = 0; i < 24; i++) {
-            if (table.getRows().size() > i + 3 && table.getRows().get(i + 3).getTableCells().size() > 2) {
-                setCellText(table.getRows().get(i + 3).getCell(2),formatDouble(A_average_hruh_list.get(i), 2));
-            }
-            if (table.getRows().size() > i + 3 && table.getRows().get(i + 3).getTableCells().size() > 3) {
-                setCellText(table.getRows().get(i + 3).getCell(3),formatDouble(A_95_hruh_list.get(i), 2));
+    private void fillTables(List<XWPFTable> tables, MeasurementMatrix[] sheets, CompliancePlan.Result compliance) {
+        int count = mappingPlan.getTableCount();
+        ForkJoinPool pool = parallelPool();
+        if (pool == null || count < 2) {
+            for (int i = 0; i < count; i++) {
+                fillTable(tables.get(i).getCTTbl(), i, sheets, compliance);
             }
-            if (table.getRows().size() > i + 3 && table.getRows().get(i + 3).getTableCells().size() > 4) {
-                setCellText(table.getRows().get(i + 3).getCell(4),formatDouble(B_average_hruh_list.get(i), 2));
+            return;
+        }
+        XmlOptions detached = new XmlOptions().setCopyUseNewSynchronizationDomain(true).setUnsynchronized();
+        List<Callable<CTTbl>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            CTTbl copy = (CTTbl) tables.get(i).getCTTbl().copy(detached);
+            int tableIndex = i;
+            tasks.add(() -> {
+                fillTable(copy, tableIndex, sheets, compliance);
+                return copy;
+            });
+        }
+        List<Future<CTTbl>> filled = pool.invokeAll(tasks);
+        for (int i = 0; i < count; i++) {
+            try {
+                tables.get(i).getCTTbl().set(filled.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("填表被中断", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("填表失败：" + e.getCause().getMessage(), e.getCause());
             }
-            if (table.getRows().size() > i + 3 && table.getRows().get(i + 3).getTableCells().size() > 5) {
-                setCellText(table.getRows().get(i + 3).getCell(5),formatDouble(B_95_hruh_list.get(i), 2));
-            }
-            if (table.getRows().size() > i + 3 && table.getRows().get(i + 3).getTableCells().size() > 6) {
-                setCellText(table.getRows().get(i + 3).getCell(6),formatDouble(C_average_hruh_list.get(i), 2));
-            }
-            if (table.getRows().size() > i + 3 && table.getRows().get(i + 3).getTableCells().size() > 7) {
-                setCellText(table.getRows().get(i + 3).getCell(7),formatDouble(C_95_hruh_list.get(i), 2));
-            }
-            if (table.getRows().size() > i + 3 && table.getRows().get(i + 3).getTableCells().size() > 8) {
-                setCellText(table.getRows().get(i + 3).getCell(8),formatDouble(limit_hruh_list.get(i), 2));
-            }
-        }
-        //  基波电流限值
-        setCellText(table.getRows().get(2).getCell(7),("—"));
-    }
-
-    //频率偏差、三相电压不平衡度及长时间闪变
-    private void fillFrequencyDeviationAndVoltageUnbalanceAndLongTermFlickerTable(XWPFTable table, List<List<Object>> voltageHarmonicData, List<List<Object>> powerData) {
-
-        // 1. 数据提取
-        double frequency_max = getDoubleValue(powerData.get(15).get(2));
-        double frequency_average = getDoubleValue(powerData.get(15).get(3));
-        double frequency_min = getDoubleValue(powerData.get(15).get(4));
-        double frequency_95 = getDoubleValue(powerData.get(15).get(5));
-        String frequency_limit = powerData.get(15).get(17).toString();
-
-        double voltage_unbalance_max = getDoubleValue(powerData.get(16).get(2));
-        double voltage_unbalance_average = getDoubleValue(powerData.get(16).get(3));
-        double voltage_unbalance_min = getDoubleValue(powerData.get(16).get(4));
-        double voltage_unbalance_95 = getDoubleValue(powerData.get(16).get(5));
-        double voltage_unbalance_limit = getDoubleValue(powerData.get(16).get(17));
-
-        double long_term_flicker_AB_max = getDoubleValue(voltageHarmonicData.get(61).get(2));
-        double long_term_flicker_AB_average = getDoubleValue(voltageHarmonicData.get(61).get(3));
-        double long_term_flicker_AB_min = getDoubleValue(voltageHarmonicData.get(61).get(4));
-        double long_term_flicker_AB_95 = getDoubleValue(voltageHarmonicData.get(61).get(5));
-
-        double long_term_flicker_BC_max = getDoubleValue(voltageHarmonicData.get(61).get(7));
-        double long_term_flicker_BC_average = getDoubleValue(voltageHarmonicData.get(61).get(8));
-        double long_term_flicker_BC_min = getDoubleValue(voltageHarmonicData.get(61).get(9));
-        double long_term_flicker_BC_95 = getDoubleValue(voltageHarmonicData.get(61).get(10));
-
-        double long_term_flicker_AC_max = getDoubleValue(voltageHarmonicData.get(61).get(12));
-        double long_term_flicker_AC_average = getDoubleValue(voltageHarmonicData.get(61).get(13));
-        double long_term_flicker_AC_min = getDoubleValue(voltageHarmonicData.get(61).get(14));
-        double long_term_flicker_AC_95 = getDoubleValue(voltageHarmonicData.get(61).get(15));
-
-        double long_term_flicker_limit = getDoubleValue(voltageHarmonicData.get(61).get(17));
-
-        // 2. 填充数据
-        //2.1 填充频率偏差数据
-        setCellText(table.getRow(1).getCell(1),formatDouble(frequency_max-50, 2));
-        setCellText(table.getRow(1).getCell(2),formatDouble(frequency_average-50, 2));
-        setCellText(table.getRow(1).getCell(3),formatDouble(frequency_min-50, 2));
-        setCellText(table.getRow(1).getCell(4),formatDouble(frequency_95-50, 2));
-        setCellText(table.getRow(1).getCell(5),frequency_limit);
-        //2.2 填充三相电压不平衡度数据
-        setCellText(table.getRow(2).getCell(1),formatDouble(voltage_unbalance_max, 2));
-        setCellText(table.getRow(2).getCell(2),formatDouble(voltage_unbalance_average, 2));
-        setCellText(table.getRow(2).getCell(3),formatDouble(voltage_unbalance_min, 2));
-        setCellText(table.getRow(2).getCell(4),formatDouble(voltage_unbalance_95, 2));
-        setCellText(table.getRow(2).getCell(5),formatDouble(voltage_unbalance_limit, 2));
-
-        //2.3 填充长时间闪变数据
-        // AB相闪变数据
-        setCellText(table.getRow(3).getCell(2),formatDouble(long_term_flicker_AB_max, 2));
-        setCellText(table.getRow(3).getCell(3),formatDouble(long_term_flicker_AB_average, 2));
-        setCellText(table.getRow(3).getCell(4),formatDouble(long_term_flicker_AB_min, 2));
-        setCellText(table.getRow(3).getCell(5),formatDouble(long_term_flicker_AB_95, 2));
-        setCellText(table.getRow(3).getCell(6),formatDouble(long_term_flicker_limit, 2));
-
-        // BC相闪变数据
-        setCellText(table.getRow(4).getCell(2),formatDouble(long_term_flicker_BC_max, 2));
-        setCellText(table.getRow(4).getCell(3),formatDouble(long_term_flicker_BC_average, 2));
-        setCellText(table.getRow(4).getCell(4),formatDouble(long_term_flicker_BC_min, 2));
-        setCellText(table.getRow(4).getCell(5),formatDouble(long_term_flicker_BC_95, 2));
-        setCellText(table.getRow(4).getCell(6),formatDouble(long_term_flicker_limit, 2));
-
-        // AC相闪变数据
-        setCellText(table.getRow(5).getCell(2),formatDouble(long_term_flicker_AC_max, 2));
-        setCellText(table.getRow(5).getCell(3),formatDouble(long_term_flicker_AC_average, 2));
-        setCellText(table.getRow(5).getCell(4),formatDouble(long_term_flicker_AC_min, 2));
-        setCellText(table.getRow(5).getCell(5),formatDouble(long_term_flicker_AC_95, 2));
-        setCellText(table.getRow(5).getCell(6),formatDouble(long_term_flicker_limit, 2));
-    }
-
-    //电压偏差
-    private void fillVoltageDeviationTable(XWPFTable table, List<List<Object>> voltageHarmonicData, Map<String, String> replaceMap) {
-
-        // 1.1 数据提取（上偏差）
-        double voltage_deviation_up_AB_max = getDoubleValue(voltageHarmonicData.get(63).get(2));
-        double voltage_deviation_up_AB_min = getDoubleValue(voltageHarmonicData.get(63).get(4));
-        double voltage_deviation_up_BC_max = getDoubleValue(voltageHarmonicData.get(63).get(7));
-        double voltage_deviation_up_BC_min = getDoubleValue(voltageHarmonicData.get(63).get(9));
-        double voltage_deviation_up_AC_max = getDoubleValue(voltageHarmonicData.get(63).get(12));
-        double voltage_deviation_up_AC_min = getDoubleValue(voltageHarmonicData.get(63).get(14));
-        double voltage_deviation_up_limit = getDoubleValue(voltageHarmonicData.get(63).get(17));
-
-        // 1.2 数据提取（下偏差）
-        double voltage_deviation_down_AB_max = getDoubleValue(voltageHarmonicData.get(64).get(2));
-        double voltage_deviation_down_AB_min = getDoubleValue(voltageHarmonicData.get(64).get(4));
-        double voltage_deviation_down_BC_max = getDoubleValue(voltageHarmonicData.get(64).get(7));
-        double voltage_deviation_down_BC_min = getDoubleValue(voltageHarmonicData.get(64).get(9));
-        double voltage_deviation_down_AC_max = getDoubleValue(voltageHarmonicData.get(64).get(12));
-        double voltage_deviation_down_AC_min = getDoubleValue(voltageHarmonicData.get(64).get(14));
-        double voltage_deviation_down_limit = Double.parseDouble("-"+voltageHarmonicData.get(64).get(17).toString());
-
-        // 2. 填充数据
-        // 上偏差数据
-        setCellText(table.getRow(2).getCell(1),formatDouble(voltage_deviation_up_AB_max, 2));
-        setCellText(table.getRow(2).getCell(2),formatDouble(voltage_deviation_up_AB_min, 2));
-        setCellText(table.getRow(2).getCell(3),formatDouble(voltage_deviation_up_BC_max, 2));
-        setCellText(table.getRow(2).getCell(4),formatDouble(voltage_deviation_up_BC_min, 2));
-        setCellText(table.getRow(2).getCell(5),formatDouble(voltage_deviation_up_AC_max, 2));
-        setCellText(table.getRow(2).getCell(6),formatDouble(voltage_deviation_up_AC_min, 2));
-        setCellText(table.getRow(2).getCell(7),formatDouble(voltage_deviation_up_limit, 2));
-
-        // 下偏差数据
-        setCellText(table.getRow(3).getCell(1),formatDouble(voltage_deviation_down_AB_max, 2));
-        setCellText(table.getRow(3).getCell(2),formatDouble(voltage_deviation_down_AB_min, 2));
-        setCellText(table.getRow(3).getCell(3),formatDouble(voltage_deviation_down_BC_max, 2));
-        setCellText(table.getRow(3).getCell(4),formatDouble(voltage_deviation_down_BC_min, 2));
-        setCellText(table.getRow(3).getCell(5),formatDouble(voltage_deviation_down_AC_max, 2));
-        setCellText(table.getRow(3).getCell(6),formatDouble(voltage_deviation_down_AC_min, 2));
-        setCellText(table.getRow(3).getCell(7),formatDouble(voltage_deviation_down_limit, 2));
-
-        // 3. 找出上偏差中 AB/BC/AC 最大者
-        double max_voltage_deviation = Math.max(voltage_deviation_up_AB_max, Math.max(voltage_deviation_up_BC_max, voltage_deviation_up_AC_max));
-        replaceMap.put("maxVoltageDeviation", formatDouble(max_voltage_deviation,2));
-
-
-    }
-
-
-    @Getter
-    private static class ExcelSheetData {
-        private final List<List<Object>> voltageHarmonicData = new ArrayList<>();
-        private final List<List<Object>> currentHarmonicData = new ArrayList<>();
-        private final List<List<Object>> powerData = new ArrayList<>();
-    }
-
-    // 读取 Excel 列范围数据
-    private List<Double> readColumnRange(List<List<Object>> data, int colIndex, int startRow, int endRow) {
-        List<Double> result = new ArrayList<>();
-        for (int i = startRow; i <= endRow; i++) {
-            result.add(getDoubleValue(data.get(i).get(colIndex)));
-        }
-        return result;
-    }
-
-    // 获取对象的 double 值
-    private double getDoubleValue(Object obj) {
-        if (obj == null) {
-            return 0.0;
         }
-        try {
-            return Double.parseDouble(obj.toString());
-        } catch (NumberFormatException e) {
-            return 0.0;
-        }
-    }
-
-    // 格式化 double 类型数据
-    private String formatDouble(double value, int scale) {
-        BigDecimal bd = new BigDecimal(value);
-        bd = bd.setScale(scale, BigDecimal.ROUND_HALF_UP);
-        return bd.toString();
     }
 
     //给docx中的表格添加标题
-    private void setTableTitle(XWPFDocument doc, XWPFTable table, String title) {
-        List<IBodyElement> bodyElements = doc.getBodyElements();
-        for (int i = 0; i < bodyElements.size(); i++) {
-            if (bodyElements.get(i).getElementType() == BodyElementType.TABLE && table == (XWPFTable)bodyElements.get(i)) {
-                if (i > 0 && bodyElements.get(i-1).getElementType() == BodyElementType.PARAGRAPH) {
-                    XWPFParagraph para = (XWPFParagraph) bodyElements.get(i-1);
-                    // 安全移除所有 runs
-                    int runCount = para.getRuns().size();
-                    for (int j = runCount - 1; j >= 0; j--) {
-                        para.removeRun(j);
-                    }
-                    XWPFRun run = para.createRun();
-                    run.setText(title);
-                    run.setFontFamily("SimSun"); // 宋体
-                    run.setFontSize(12);         // 小四（12磅）
-                } else {
-                    // 没有标题段落，需新插入一个（用XmlCursor）
-                    XmlCursor cursor = table.getCTTbl().newCursor();
-                    XWPFParagraph newPara = doc.insertNewParagraph(cursor);
-                    XWPFRun run = newPara.createRun();
-                    run.setText(title);
-                    run.setFontFamily("SimSun");
-                    run.setFontSize(12);
-                }
-                break;
+    private void setTableTitle(XWPFDocument doc, DocumentIndex index, XWPFTable table, String title) {
+        XWPFParagraph para = index.tableTitle(table);
+        if (para != null) {
+            // 安全移除所有 runs
+            int runCount = para.getRuns().size();
+            for (int j = runCount - 1; j >= 0; j--) {
+                para.removeRun(j);
             }
+            RunStyle.TABLE_TITLE.appendRun(para, title);
+        } else {
+            // 没有标题段落，需新插入一个（用XmlCursor）
+            XmlCursor cursor = table.getCTTbl().newCursor();
+            XWPFParagraph newPara = doc.insertNewParagraph(cursor);
+            RunStyle.TABLE_TITLE.appendRun(newPara, title);
         }
     }
 
-    // 设置docx单元格文本格式
-    private void setCellText(XWPFTableCell cell, String text) {
-        // 清空所有段落
-        while (cell.getParagraphs().size() > 0) {
-            cell.removeParagraph(0);
-        }
-        XWPFParagraph para = cell.addParagraph();
-        para.setAlignment(ParagraphAlignment.CENTER); // 居中对齐
-        XWPFRun run = para.createRun();
-        run.setText(text);
-        run.setFontFamily("Times New Roman"); // 设置为 Times New Roman
-        run.setFontSize(10);         // 小五
-    }
-
     // 自动判断图片类型
     private int detectImageType(String filename) {
         if (filename == null) return XWPFDocument.PICTURE_TYPE_PNG;
@@ -620,9 +681,9 @@ public class XlsServiceImpl implements XlsService {
         return XWPFDocument.PICTURE_TYPE_PNG; // 默认
     }
 
-    // 替换占位符为图片
-    private void insertImageAndModifyCaption(
-            XWPFDocument doc,
+    // 替换占位符为图片，模板中没有该占位符时返回 false
+    boolean insertImageAndModifyCaption(
+            DocumentIndex index,
             String placeholder,
             InputStream imageStream,
             int imageType,
@@ -630,48 +691,67 @@ public class XlsServiceImpl implements XlsService {
             int heightPx,
             String monitorPosition
     ) throws Exception {
-        List<XWPFParagraph> paragraphs = doc.getParagraphs();
-        for (int i = 0; i < paragraphs.size(); i++) {
-            XWPFParagraph para = paragraphs.get(i);
-            String text = para.getText();
-            if (text != null && text.contains(placeholder)) {
-                // 清空占位符段落并插入图片
-                int runCount = para.getRuns().size();
-                for (int j = runCount - 1; j >= 0; j--) para.removeRun(j);
-                XWPFRun run = para.createRun();
-                run.addPicture(imageStream, imageType, "image",
-                        Units.toEMU(widthPx), Units.toEMU(heightPx));
-
-                // 自动替换下一个段落（图名）
-                if (i + 1 < paragraphs.size()) {
-                    XWPFParagraph captionPara = paragraphs.get(i + 1);
-                    String origCaption = captionPara.getText();
-                    String newCaption = origCaption;
-                    if (origCaption != null) {
-                        // 只判断开头为“图1.1”，其余均加监测位置
-                        if (origCaption.trim().startsWith("图1.1")) {
-                            newCaption = origCaption;
-                        } else {
-                            int firstSpace = origCaption.indexOf(' ');
-                            if (firstSpace != -1 && firstSpace + 1 < origCaption.length()) {
-                                newCaption = origCaption.substring(0, firstSpace + 1)
-                                        + " " + monitorPosition
-                                        + origCaption.substring(firstSpace + 1);
-                            } else {
-                                newCaption = origCaption + " " + monitorPosition;
-                            }
-                        }
+        XWPFParagraph para = index.imageParagraph(placeholder);
+        if (para == null) {
+            return false;
+        }
+        // 清空占位符段落并插入图片
+        int runCount = para.getRuns().size();
+        for (int j = runCount - 1; j >= 0; j--) para.removeRun(j);
+        XWPFRun run = para.createRun();
+        run.addPicture(imageStream, imageType, "image",
+                Units.toEMU(widthPx), Units.toEMU(heightPx));
+
+        modifyCaption(index.captionParagraph(placeholder), monitorPosition);
+        return true;
+    }
+
+    // 替换 {{chart:name}} 为第 chart 个图表，模板中没有该占位符时返回 false
+    boolean insertChartAndModifyCaption(
+            DocumentIndex index,
+            int chart,
+            MeasurementMatrix[] sheets,
+            int widthPx,
+            int heightPx,
+            String monitorPosition
+    ) throws Exception {
+        String placeholder = chartPlan.placeholder(chart);
+        XWPFParagraph para = index.imageParagraph(placeholder);
+        if (para == null) {
+            return false;
+        }
+        int runCount = para.getRuns().size();
+        for (int j = runCount - 1; j >= 0; j--) para.removeRun(j);
+        XWPFChart target = para.getDocument().createChart(para.createRun(), Units.toEMU(widthPx), Units.toEMU(heightPx));
+        chartPlan.draw(chart, target, sheets);
+
+        modifyCaption(index.captionParagraph(placeholder), monitorPosition);
+        return true;
+    }
+
+    // 自动替换插图的下一个段落（图名）
+    private void modifyCaption(XWPFParagraph captionPara, String monitorPosition) {
+        if (captionPara != null) {
+            String origCaption = captionPara.getText();
+            String newCaption = origCaption;
+            if (origCaption != null) {
+                // 只判断开头为“图1.1”，其余均加监测位置
+                if (origCaption.trim().startsWith("图1.1")) {
+                    newCaption = origCaption;
+                } else {
+                    int firstSpace = origCaption.indexOf(' ');
+                    if (firstSpace != -1 && firstSpace + 1 < origCaption.length()) {
+                        newCaption = origCaption.substring(0, firstSpace + 1)
+                                + " " + monitorPosition
+                                + origCaption.substring(firstSpace + 1);
+                    } else {
+                        newCaption = origCaption + " " + monitorPosition;
                     }
-                    int capRunCount = captionPara.getRuns().size();
-                    for (int j = capRunCount - 1; j >= 0; j--) captionPara.removeRun(j);
-                    XWPFRun capRun = captionPara.createRun();
-                    capRun.setText(newCaption);
-                    capRun.setFontFamily("SimSun");
-                    capRun.setFontSize(12); // 小四
                 }
-
-                return;
             }
+            int capRunCount = captionPara.getRuns().size();
+            for (int j = capRunCount - 1; j >= 0; j--) captionPara.removeRun(j);
+            RunStyle.CAPTION.appendRun(captionPara, newCaption);
         }
     }
 
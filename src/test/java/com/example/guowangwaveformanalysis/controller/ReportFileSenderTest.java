@@ -0,0 +1,59 @@
+package com.example.guowangwaveformanalysis.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Range 头解析：[start, end] 按范围返回，空数组按整个文件返回（200），null 为范围无法满足（416）。
+ */
+class ReportFileSenderTest {
+
+    private static final long LENGTH = 1000;
+    private static final long[] WHOLE_FILE = new long[0];
+
+    @Test
+    void parsesClosedRange() {
+        assertArrayEquals(new long[]{0, 499}, ReportFileSender.parseRange("bytes=0-499", LENGTH));
+        assertArrayEquals(new long[]{5, 5}, ReportFileSender.parseRange("bytes=5-5", LENGTH));
+        assertArrayEquals(new long[]{10, 20}, ReportFileSender.parseRange(" bytes= 10 - 20 ", LENGTH));
+        // 超出文件末尾的 last 截到最后一个字节
+        assertArrayEquals(new long[]{900, 999}, ReportFileSender.parseRange("bytes=900-5000", LENGTH));
+    }
+
+    @Test
+    void parsesOpenEndedRange() {
+        assertArrayEquals(new long[]{500, 999}, ReportFileSender.parseRange("bytes=500-", LENGTH));
+        assertArrayEquals(new long[]{999, 999}, ReportFileSender.parseRange("bytes=999-", LENGTH));
+    }
+
+    @Test
+    void parsesSuffixRange() {
+        assertArrayEquals(new long[]{900, 999}, ReportFileSender.parseRange("bytes=-100", LENGTH));
+        // 比文件还长时返回整个文件
+        assertArrayEquals(new long[]{0, 999}, ReportFileSender.parseRange("bytes=-5000", LENGTH));
+    }
+
+    @Test
+    void servesWholeFileForMultiRangeAndInvalidSyntax() {
+        assertArrayEquals(WHOLE_FILE, ReportFileSender.parseRange("bytes=0-1,5-9", LENGTH));
+        assertArrayEquals(WHOLE_FILE, ReportFileSender.parseRange("bytes=-1,-2", LENGTH));
+        assertArrayEquals(WHOLE_FILE, ReportFileSender.parseRange("bytes=5-3", LENGTH));
+        assertArrayEquals(WHOLE_FILE, ReportFileSender.parseRange("items=0-1", LENGTH));
+        assertArrayEquals(WHOLE_FILE, ReportFileSender.parseRange("bytes=abc", LENGTH));
+        assertArrayEquals(WHOLE_FILE, ReportFileSender.parseRange("bytes=-", LENGTH));
+        assertArrayEquals(WHOLE_FILE, ReportFileSender.parseRange("bytes=x-1", LENGTH));
+        assertArrayEquals(WHOLE_FILE, ReportFileSender.parseRange("bytes=--5", LENGTH));
+        assertArrayEquals(WHOLE_FILE, ReportFileSender.parseRange("bytes=99999999999999999999-", LENGTH));
+    }
+
+    @Test
+    void rejectsUnsatisfiableRange() {
+        assertNull(ReportFileSender.parseRange("bytes=1000-", LENGTH));
+        assertNull(ReportFileSender.parseRange("bytes=1000-1200", LENGTH));
+        assertNull(ReportFileSender.parseRange("bytes=-0", LENGTH));
+        assertNull(ReportFileSender.parseRange("bytes=0-", 0));
+        assertNull(ReportFileSender.parseRange("bytes=-10", 0));
+    }
+}
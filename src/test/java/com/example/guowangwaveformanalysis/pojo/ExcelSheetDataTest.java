@@ -0,0 +1,99 @@
+package com.example.guowangwaveformanalysis.pojo;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 数据集的二进制形式：ExcelSheetData.writeTo 写出再 readFrom 读回后，每个单元格的数值和原文都与原来一致，
+ * 包括空白（NaN）、整数格式（原文不带“.0”）、文字单元格及其中的数字。
+ */
+class ExcelSheetDataTest {
+
+    @Test
+    void roundTripKeepsValuesIntegralFlagsAndTexts() throws IOException {
+        List<List<Object>> rows = new ArrayList<>();
+        rows.add(Arrays.asList("时间", "UA", "IA", "备注"));
+        rows.add(Arrays.asList(1L, 230.5, 12, "0.22"));
+        rows.add(Arrays.asList(2L, Double.NaN, null, " 1.23"));
+        rows.add(Arrays.asList(3L, 2.0, -7L, "N/A"));
+        // 行长不一：缺的单元格为空白
+        rows.add(Arrays.asList(4L, ""));
+        rows.add(Arrays.asList(null, -0.5, 1e-9, "额定 10kV"));
+
+        ExcelSheetData data = new ExcelSheetData();
+        data.putSheet(ExcelSheetData.VOLTAGE_HARMONIC, MeasurementMatrix.of(rows));
+        // 整数标记跨多个 long：全为 Long 的 7 × 20 表，没有文字单元格
+        List<List<Object>> integers = new ArrayList<>();
+        for (int r = 0; r < 7; r++) {
+            List<Object> row = new ArrayList<>();
+            for (int c = 0; c < 20; c++) {
+                row.add((r + c) % 3 == 0 ? (Object) (double) (r * 20 + c) : (Object) (long) (r * 20 + c));
+            }
+            integers.add(row);
+        }
+        data.putSheet(ExcelSheetData.POWER, MeasurementMatrix.of(integers));
+        data.putSheet("空表", MeasurementMatrix.of(new ArrayList<>()));
+
+        ExcelSheetData copy = roundTrip(data);
+
+        assertEquals(data.getRowCount(), copy.getRowCount());
+        for (String name : new String[]{ExcelSheetData.VOLTAGE_HARMONIC, ExcelSheetData.POWER, "空表"}) {
+            assertSameCells(data.getSheet(name), copy.getSheet(name));
+        }
+
+        MeasurementMatrix sheet = copy.getVoltageHarmonicData();
+        assertEquals("1", sheet.text(1, 0));
+        assertEquals(1.0, sheet.value(1, 0));
+        assertEquals("12", sheet.text(1, 2));
+        assertEquals("2.0", sheet.text(3, 1));
+        assertEquals(0.22, sheet.value(1, 3));
+        assertEquals(" 1.23", sheet.text(2, 3));
+        assertEquals(1.23, sheet.value(2, 3));
+        assertEquals("N/A", sheet.text(3, 3));
+        assertEquals(Double.NaN, sheet.value(3, 3));
+        assertEquals(Double.NaN, sheet.value(2, 1));
+        assertNull(sheet.text(2, 1));
+        assertNull(sheet.text(2, 2));
+        assertNull(sheet.text(4, 3));
+        assertEquals("", sheet.text(4, 1));
+        assertEquals("额定 10kV", sheet.text(5, 3));
+        assertEquals("19", copy.getPowerData().text(0, 19));
+        assertEquals("18.0", copy.getPowerData().text(0, 18));
+        assertEquals(0, copy.getCurrentHarmonicData().getRowCount());
+    }
+
+    private static ExcelSheetData roundTrip(ExcelSheetData data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            data.writeTo(out);
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            ExcelSheetData copy = ExcelSheetData.readFrom(in);
+            assertEquals(-1, in.read());
+            return copy;
+        }
+    }
+
+    private static void assertSameCells(MeasurementMatrix expected, MeasurementMatrix actual) {
+        assertEquals(expected.getRowCount(), actual.getRowCount());
+        assertEquals(expected.getColCount(), actual.getColCount());
+        for (int r = 0; r < expected.getRowCount(); r++) {
+            for (int c = 0; c < expected.getColCount(); c++) {
+                String cell = "(" + r + ", " + c + ")";
+                assertEquals(Double.doubleToLongBits(expected.value(r, c)), Double.doubleToLongBits(actual.value(r, c)), cell);
+                assertEquals(expected.text(r, c), actual.text(r, c), cell);
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 基准测试用的合成数据：按监测仪导出格式生成的 Excel、与真实模板结构相同的 Word 模板、频谱图
+ */
+final class BenchmarkFixtures {
+
+    private static final String[] SHEETS = {"电压谐波", "电流谐波", "功率"};
+
+    //模板中的表格行列数，依次为谐波电压、谐波电流、频率偏差/不平衡度/闪变、电压偏差
+    private static final int[][] TABLE_SIZES = {{28, 9}, {27, 9}, {6, 7}, {4, 8}};
+
+    private static final String[] FIELDS = {"reportNo", "client", "addressOfClient", "applicant", "addressOfApplicant",
+            "testSite", "voltage", "spot", "environmentTemperature", "relativeHumidity", "startYear", "startMonth",
+            "startDay", "startHour", "startMinute", "endYear", "endMonth", "endDay", "endHour", "endMinute"};
+
+    private BenchmarkFixtures() {
+    }
+
+    //按映射配置初始化的服务，不依赖 Spring 容器
+    static XlsServiceImpl newService(String readerMode) throws IOException {
+        return newService(readerMode, 1);
+    }
+
+    //parallelism 为单份报告内解析工作表、填表所用的并行度，1 表示按顺序执行
+    static XlsServiceImpl newService(String readerMode, int parallelism) throws IOException {
+        XlsServiceImpl service = new XlsServiceImpl();
+        ReflectionTestUtils.setField(service, "mappingLocation", new ClassPathResource("mapping/default-layout.json"));
+        ReflectionTestUtils.setField(service, "excelReaderMode", readerMode);
+        ReflectionTestUtils.setField(service, "reportForkJoinPool", new ForkJoinPool(parallelism));
+        service.compileMapping();
+        return service;
+    }
+
+    //完整走 processExcelFile 的服务：报告写到 outputDir，不启用结果缓存、数据集、历史测量库；
+    //cpuExecutor 为解析、填充所用的平台线程池，null 时在调用线程上执行
+    static XlsServiceImpl newReportService(Path outputDir, TemplateServiceImpl templates, ExecutorService cpuExecutor)
+            throws IOException {
+        XlsServiceImpl service = newService("streaming");
+        ReflectionTestUtils.setField(service, "reportStore", new ReportStoreServiceImpl(outputDir.toString(), 60));
+        ReflectionTestUtils.setField(service, "templateService", templates);
+        ReflectionTestUtils.setField(service, "metrics", new ReportMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(service, "reportCpuExecutor", cpuExecutor);
+        return service;
+    }
+
+    //上传文件形式的合成 Excel、模板
+    static MockMultipartFile excelFile(int extraRows) throws IOException {
+        return new MockMultipartFile("file", "data.xlsx",
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", excel(extraRows));
+    }
+
+    static MockMultipartFile templateFile() throws IOException {
+        return new MockMultipartFile("templateFile", "template.docx",
+                "application/vnd.openxmlformats-officedocument.wordprocessingml.document", template());
+    }
+
+    //监测仪导出的统计表，报告用到前 70 行，extraRows 为其后附带的明细行数
+    static byte[] excel(int extraRows) throws IOException {
+        Random random = new Random(42);
+        try (XSSFWorkbook wb = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (String name : SHEETS) {
+                XSSFSheet sheet = wb.createSheet(name);
+                sheet.createRow(0).createCell(0).setCellValue(name + "统计");
+                sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 17));
+                sheet.createRow(1).createCell(0).setCellValue("监测点：1#主变10kV侧");
+                sheet.addMergedRegion(new CellRangeAddress(1, 1, 0, 17));
+                for (int i = 2; i < 70 + extraRows; i++) {
+                    XSSFRow row = sheet.createRow(i);
+                    row.createCell(0).setCellValue("r" + i);
+                    row.createCell(1).setCellValue(i);
+                    for (int c = 2; c <= 17; c++) {
+                        double v = i == 9 ? 10000 + random.nextDouble() * 500 : random.nextDouble() * 5;
+                        if ("功率".equals(name) && i == 15 && c <= 5) {
+                            v = 49.9 + random.nextDouble() * 0.2;
+                        }
+                        row.createCell(c).setCellValue(Math.round(v * 100000) / 100000.0);
+                    }
+                }
+                if ("功率".equals(name)) {
+                    sheet.getRow(15).getCell(17).setCellValue("±0.2");
+                }
+                if ("电压谐波".equals(name)) {
+                    sheet.getRow(63).getCell(17).setCellValue(7);
+                    sheet.getRow(64).getCell(17).setCellValue("10");
+                }
+                sheet.addMergedRegion(new CellRangeAddress(61, 62, 17, 17));
+            }
+            wb.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    //报告模板：封面字段、四张统计表、两处图片占位、一处图表占位
+    static byte[] template() throws IOException {
+        try (XWPFDocument doc = new XWPFDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            String[] lines = {"报告编号：{{reportNo}}", "委托单位：{{client}} 地址：{{addressOfClient}}",
+                    "申请单位：{{applicant}}（{{addressOfApplicant}}）", "测试地点：{{testSite}} 电压等级：{{voltage}} 测点：{{spot}}",
+                    "温度 {{environmentTemperature}} 湿度 {{relativeHumidity}}",
+                    "时间 {{startYear}}-{{startMonth}}-{{startDay}} {{startHour}}:{{startMinute}} 至 {{endYear}}-{{endMonth}}-{{endDay}} {{endHour}}:{{endMinute}}",
+                    "仪器 {{measurement}}", "最大电压偏差 {{maxVoltageDeviation}}"};
+            for (String line : lines) {
+                doc.createParagraph().createRun().setText(line);
+            }
+            // Word 编辑后常见的占位符被拆到多个 run 的情况
+            XWPFParagraph split = doc.createParagraph();
+            split.createRun().setText("报告编号 {{rep");
+            split.createRun().setText("ortNo}}");
+            for (int t = 0; t < TABLE_SIZES.length; t++) {
+                doc.createParagraph().createRun().setText("表1." + (t + 1));
+                XWPFTable table = doc.createTable(TABLE_SIZES[t][0], TABLE_SIZES[t][1]);
+                table.getRow(0).getCell(0).setText("{{testSite}}");
+            }
+            doc.createParagraph().createRun().setText("{{image1}}");
+            doc.createParagraph().createRun().setText("图1.2 谐波频谱图");
+            doc.createParagraph().createRun().setText("{{image2}}");
+            doc.createParagraph().createRun().setText("图1.1 现场照片");
+            doc.createParagraph().createRun().setText("{{chart:voltageHarmonics}}");
+            doc.createParagraph().createRun().setText("图1.3 谐波电压含有率");
+            doc.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    //表单字段
+    static Map<String, String> replaceMap() {
+        Map<String, String> map = new HashMap<>();
+        for (String field : FIELDS) {
+            map.put(field, field.toUpperCase());
+        }
+        map.put("measurement", "PQ3000  C1  2025-01-01");
+        map.put("maxVoltageDeviation", "4.85");
+        return map;
+    }
+
+    //频谱图截图大小的 PNG
+    static byte[] png(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        g.setColor(Color.BLUE);
+        for (int x = 0; x < width; x++) {
+            g.fillRect(x, (int) (height / 2 + Math.sin(x / 20.0) * height / 3), 2, 2);
+        }
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
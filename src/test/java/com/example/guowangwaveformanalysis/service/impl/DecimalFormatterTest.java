@@ -0,0 +1,99 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+import java.util.function.DoubleSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * DecimalFormatter 与 BigDecimal HALF_UP 逐值对比的性质测试：
+ * 随机生成各类 double（含恰好位于舍入边界上及其相邻的值），要求所有 scale 下输出完全一致。
+ * 随机种子固定，失败可复现。
+ */
+class DecimalFormatterTest {
+
+    private static final int SAMPLES = 200_000;
+    private static final int MAX_SCALE = 8;
+
+    private final DecimalFormatter formatter = new DecimalFormatter();
+
+    @Test
+    void matchesBigDecimalForTypicalMeasurements() {
+        SplittableRandom random = new SplittableRandom(20240601L);
+        // 电压、电流、谐波含有率等常见量级
+        checkAll(random, () -> (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(-4, 7)));
+    }
+
+    @Test
+    void matchesBigDecimalOnRoundingBoundaries() {
+        SplittableRandom random = new SplittableRandom(7L);
+        // (k + 0.5) / 10^s 及其前后相邻的 double，正是 HALF_UP 最容易出错的地方
+        for (int i = 0; i < SAMPLES; i++) {
+            int scale = random.nextInt(0, MAX_SCALE + 1);
+            double boundary = (random.nextLong(0, 10_000_000L) + 0.5) / Math.pow(10, scale);
+            for (double value : new double[]{Math.nextDown(boundary), boundary, Math.nextUp(boundary)}) {
+                check(value, scale);
+                check(-value, scale);
+            }
+        }
+    }
+
+    @Test
+    void matchesBigDecimalForArbitraryBitPatterns() {
+        SplittableRandom random = new SplittableRandom(42L);
+        checkAll(random, () -> {
+            double value;
+            do {
+                value = Double.longBitsToDouble(random.nextLong());
+            } while (Double.isNaN(value) || Double.isInfinite(value));
+            return value;
+        });
+    }
+
+    @Test
+    void matchesBigDecimalForIntegersAndLargeMagnitudes() {
+        SplittableRandom random = new SplittableRandom(99L);
+        checkAll(random, () -> {
+            // 快速路径上限 2^51 附近及以上
+            double value = random.nextBoolean()
+                    ? (double) random.nextLong(-(1L << 53), 1L << 53)
+                    : random.nextDouble() * Math.pow(2, random.nextInt(40, 60));
+            return random.nextBoolean() ? value : Math.nextUp(value);
+        });
+    }
+
+    @Test
+    void matchesBigDecimalForSpecialValues() {
+        double[] values = {0.0, -0.0, Double.MIN_VALUE, -Double.MIN_VALUE, Double.MIN_NORMAL, Double.MAX_VALUE,
+                -Double.MAX_VALUE, 0.5, -0.5, 1.5, 2.5, -2.5, 0.005, 0.015, 0.125, 1.005, 2.675, 1e-7, -0.0004,
+                0x1p51, Math.nextDown(0x1p51), 0x1p52 - 0.5, 0x1p53};
+        for (double value : values) {
+            for (int scale = 0; scale <= MAX_SCALE; scale++) {
+                check(value, scale);
+            }
+        }
+    }
+
+    @Test
+    void rejectsNonFiniteValuesLikeBigDecimal() {
+        assertThrows(NumberFormatException.class, () -> formatter.format(Double.NaN, 2));
+        assertThrows(NumberFormatException.class, () -> formatter.format(Double.POSITIVE_INFINITY, 2));
+        assertThrows(NumberFormatException.class, () -> formatter.format(Double.NEGATIVE_INFINITY, 0));
+    }
+
+    private void checkAll(SplittableRandom random, DoubleSupplier values) {
+        for (int i = 0; i < SAMPLES; i++) {
+            check(values.getAsDouble(), random.nextInt(0, MAX_SCALE + 1));
+        }
+    }
+
+    private void check(double value, int scale) {
+        assertEquals(new BigDecimal(value).setScale(scale, RoundingMode.HALF_UP).toString(), formatter.format(value, scale),
+                () -> "value=" + value + " (" + Double.doubleToRawLongBits(value) + "), scale=" + scale);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import com.example.guowangwaveformanalysis.pojo.HistoryPoint;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 历史测量库查询的基准：campaigns 次监测分布在 200 个监测位置、两年内，每次保存与默认映射相同的 632 列。
+ * 运行：mvn -P benchmark verify
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoryQueryBenchmark {
+
+    private static final int POSITIONS = 200;
+    private static final int COLUMNS = 632;
+
+    @State(Scope.Benchmark)
+    public static class Store {
+        @Param({"1000", "10000"})
+        public int campaigns;
+
+        Path dir;
+        HistoryServiceImpl history;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            dir = Files.createTempDirectory("history-bench");
+            history = new HistoryServiceImpl(dir.toString());
+            history.load();
+            String[] columns = new String[COLUMNS];
+            for (int i = 0; i < COLUMNS; i++) {
+                columns[i] = "Q" + i / 4 + "." + new String[]{"max", "mean", "min", "p95"}[i % 4];
+            }
+            columns[0] = "UA_H5.p95";
+            SplittableRandom random = new SplittableRandom(1L);
+            LocalDate first = LocalDate.of(2023, 1, 1);
+            for (int c = 0; c < campaigns; c++) {
+                double[] values = random.doubles(COLUMNS).toArray();
+                LocalDate start = first.plusDays(random.nextInt(730));
+                history.record("站" + c % 20, "监测点" + c % POSITIONS, start, start.plusDays(7), columns, values);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public List<HistoryPoint> trend(Store store) {
+        return store.history.trend("UA_H5.p95", "监测点7", null, LocalDate.of(2023, 6, 1), LocalDate.of(2024, 12, 31));
+    }
+
+    @Benchmark
+    public List<HistoryPoint> topAll(Store store) {
+        return store.history.top("UA_H5.p95", 10, null, null, null);
+    }
+
+    @Benchmark
+    public List<HistoryPoint> topInPeriod(Store store) {
+        return store.history.top("UA_H5.p95", 10, null, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 6, 30));
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import com.example.guowangwaveformanalysis.pojo.HistoryPoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 历史测量库：重新打开后由 campaigns.jsonl、columns.txt 重建列与索引；同一地点、位置、起止日期重复保存时覆盖原记录；
+ * 后加的列在较早的监测中读出为 NaN（查询时不返回）。
+ */
+class HistoryServiceImplTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 3, 1);
+
+    @TempDir
+    Path dir;
+
+    private HistoryServiceImpl open() throws IOException {
+        HistoryServiceImpl history = new HistoryServiceImpl(dir.toString());
+        history.load();
+        return history;
+    }
+
+    @Test
+    void reopenRebuildsColumnsAndIndexes() throws IOException {
+        HistoryServiceImpl history = open();
+        history.record("站A", "1号主变", START, START.plusDays(7),
+                new String[]{"UA_H5.p95", "UA_H5.max"}, new double[]{1.5, 2.5});
+        history.record("站B", "2号主变", START.plusDays(30), START.plusDays(37),
+                new String[]{"UA_H5.p95", "UA_H5.max"}, new double[]{3.5, 4.5});
+        history.flush();
+
+        HistoryServiceImpl reopened = open();
+        assertEquals(List.of("UA_H5.p95", "UA_H5.max"), reopened.columns());
+
+        List<HistoryPoint> trend = reopened.trend("ua_h5.P95", "1号主变", null, null, null);
+        assertEquals(1, trend.size());
+        assertEquals(1.5, trend.get(0).getValue());
+        assertEquals("站A", trend.get(0).getSite());
+        assertEquals(START.toString(), trend.get(0).getStart());
+
+        // 地点、日期索引
+        assertEquals(List.of("2号主变"), positions(reopened.top("UA_H5.max", 10, "站B", null, null)));
+        assertEquals(List.of("2号主变"), positions(reopened.top("UA_H5.max", 10, null, START.plusDays(1), null)));
+        assertEquals(List.of("2号主变", "1号主变"), positions(reopened.top("UA_H5.max", 10, null, null, null)));
+
+        // 重新打开后按原键保存仍覆盖原记录，不新增监测
+        reopened.record("站A", "1号主变", START, START.plusDays(7), new String[]{"UA_H5.p95"}, new double[]{9.5});
+        trend = reopened.trend("UA_H5.p95", "1号主变", null, null, null);
+        assertEquals(1, trend.size());
+        assertEquals(9.5, trend.get(0).getValue());
+        assertEquals(0, trend.get(0).getCampaignId());
+    }
+
+    @Test
+    void recordingSameCampaignAgainOverwrites() throws IOException {
+        HistoryServiceImpl history = open();
+        history.record("站A", "1号主变", START, START.plusDays(7),
+                new String[]{"UA_H5.p95", "UA_H5.max"}, new double[]{1.5, 2.5});
+        history.record("站A", "1号主变", START, START.plusDays(7),
+                new String[]{"UA_H5.p95"}, new double[]{1.75});
+
+        List<HistoryPoint> trend = history.trend("UA_H5.p95", "1号主变", null, null, null);
+        assertEquals(1, trend.size());
+        assertEquals(1.75, trend.get(0).getValue());
+        // 重新保存时没有的列不保留上一次的值
+        assertTrue(history.trend("UA_H5.max", "1号主变", null, null, null).isEmpty());
+
+        // 起止日期不同是另一次监测
+        history.record("站A", "1号主变", START.plusDays(7), START.plusDays(14),
+                new String[]{"UA_H5.p95"}, new double[]{2.0});
+        assertEquals(2, history.trend("UA_H5.p95", "1号主变", null, null, null).size());
+    }
+
+    @Test
+    void columnAddedLaterReadsAsNaNForOlderCampaigns() throws IOException {
+        HistoryServiceImpl history = open();
+        history.record("站A", "1号主变", START, START.plusDays(7), new String[]{"UA_H5.p95"}, new double[]{1.5});
+
+        // 一次加入超过一个映射步长的新列，已有段需要重新映射
+        String[] columns = new String[201];
+        double[] values = new double[columns.length];
+        columns[0] = "UA_H5.p95";
+        values[0] = 2.5;
+        for (int i = 1; i < columns.length; i++) {
+            columns[i] = "IA_H" + i + ".p95";
+            values[i] = i;
+        }
+        history.record("站A", "1号主变", START.plusDays(7), START.plusDays(14), columns, values);
+        history.flush();
+
+        for (HistoryServiceImpl store : List.of(history, open())) {
+            assertEquals(columns.length, store.columns().size());
+            List<HistoryPoint> later = store.trend("IA_H200.p95", "1号主变", null, null, null);
+            assertEquals(1, later.size());
+            assertEquals(200.0, later.get(0).getValue());
+            assertEquals(START.plusDays(7).toString(), later.get(0).getStart());
+
+            List<HistoryPoint> first = store.trend("UA_H5.p95", "1号主变", null, null, null);
+            assertEquals(2, first.size());
+            assertEquals(1.5, first.get(0).getValue());
+            assertEquals(2.5, first.get(1).getValue());
+        }
+    }
+
+    private static List<String> positions(List<HistoryPoint> points) {
+        return points.stream().map(HistoryPoint::getPosition).toList();
+    }
+}
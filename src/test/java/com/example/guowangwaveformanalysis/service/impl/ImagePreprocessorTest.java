@@ -0,0 +1,76 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 插图预处理：无法解码的图片（这里用只有文件头、没有图像数据的截断 JPEG）按原图嵌入，不丢图；
+ * 能解码的大图缩小后重新编码。
+ */
+class ImagePreprocessorTest {
+
+    private final ImagePreprocessor preprocessor = new ImagePreprocessor();
+
+    ImagePreprocessorTest() {
+        ReflectionTestUtils.setField(preprocessor, "reportForkJoinPool", new ForkJoinPool(2));
+    }
+
+    @Test
+    void keepsOriginalBytesWhenJpegCannotBeDecoded() throws IOException {
+        // 截断在 SOS 之前：ImageIO.read 抛出 IIOException
+        byte[] truncated = Arrays.copyOf(jpeg(2000, 1200), 200);
+        MultipartFile image = new MockMultipartFile("images", "photo.jpg", "image/jpeg", truncated);
+
+        ImagePreprocessor.PreparedImage prepared = preprocessor.prepare(image, XWPFDocument.PICTURE_TYPE_JPEG, 400, 250);
+        assertArrayEquals(truncated, prepared.data);
+        assertEquals(XWPFDocument.PICTURE_TYPE_JPEG, prepared.pictureType);
+
+        List<ImagePreprocessor.PreparedImage> all = preprocessor.prepareAll(new MultipartFile[]{image},
+                new int[]{XWPFDocument.PICTURE_TYPE_JPEG}, 400, 250);
+        assertNotNull(all.get(0));
+        assertArrayEquals(truncated, all.get(0).data);
+    }
+
+    @Test
+    void shrinksDecodableLargeImage() throws IOException {
+        byte[] original = jpeg(4000, 2500);
+        MultipartFile image = new MockMultipartFile("images", "photo.jpg", "image/jpeg", original);
+
+        ImagePreprocessor.PreparedImage prepared = preprocessor.prepare(image, XWPFDocument.PICTURE_TYPE_JPEG, 400, 250);
+        assertEquals(XWPFDocument.PICTURE_TYPE_JPEG, prepared.pictureType);
+        assertTrue(prepared.data.length < original.length);
+        // 400 × 250 像素按 200 DPI 打印
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(prepared.data));
+        assertEquals(833, decoded.getWidth());
+        assertEquals(520, decoded.getHeight());
+    }
+
+    private static byte[] jpeg(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x += 7) {
+            for (int y = 0; y < height; y += 5) {
+                image.setRGB(x, y, x * y);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * P² 分位数估计：长序列与精确分位数（最近秩法）相差在容差内；不超过 5 个样本时按最近秩法精确计算。
+ */
+class P2QuantileTest {
+
+    @Test
+    void p95TracksExactQuantileOfSeededSample() {
+        Random random = new Random(20240301L);
+        double[] sample = new double[20000];
+        P2Quantile p95 = new P2Quantile(0.95);
+        for (int i = 0; i < sample.length; i++) {
+            // 谐波含有率量级：均值 2%、标准差 0.5%
+            sample[i] = 2 + 0.5 * random.nextGaussian();
+            p95.add(sample[i]);
+        }
+        double exact = exact(sample, 0.95);
+        assertEquals(sample.length, p95.getCount());
+        assertEquals(exact, p95.value(), 0.01, "精确值 " + exact);
+    }
+
+    @Test
+    void p95TracksExactQuantileOfSkewedSample() {
+        Random random = new Random(7L);
+        double[] sample = new double[5000];
+        P2Quantile p95 = new P2Quantile(0.95);
+        for (int i = 0; i < sample.length; i++) {
+            // 偏态分布（指数分布），更接近闪变、不平衡度的实测数据
+            sample[i] = -Math.log(1 - random.nextDouble());
+            p95.add(sample[i]);
+        }
+        double exact = exact(sample, 0.95);
+        assertTrue(Math.abs(p95.value() - exact) < 0.05 * exact, "精确值 " + exact + "，估计值 " + p95.value());
+    }
+
+    @Test
+    void upToFiveSamplesUseNearestRank() {
+        P2Quantile p95 = new P2Quantile(0.95);
+        P2Quantile p50 = new P2Quantile(0.5);
+        assertTrue(Double.isNaN(p95.value()));
+
+        double[] values = {3, 1, 5, 2, 4};
+        for (int i = 0; i < values.length; i++) {
+            p95.add(values[i]);
+            p50.add(values[i]);
+            double[] sorted = Arrays.copyOf(values, i + 1);
+            Arrays.sort(sorted);
+            assertEquals(sorted[i], p95.value(), "样本数 " + (i + 1));
+            assertEquals(sorted[(int) Math.ceil(0.5 * (i + 1)) - 1], p50.value(), "样本数 " + (i + 1));
+        }
+        // 样本 {1, 2, 3} 的中位数为 2，{1, 2, 3, 5} 按最近秩法同样为 2
+        P2Quantile median = new P2Quantile(0.5);
+        median.add(3);
+        median.add(1);
+        median.add(2);
+        assertEquals(2, median.value());
+        median.add(5);
+        assertEquals(2, median.value());
+    }
+
+    @Test
+    void rejectsQuantileOutsideOpenInterval() {
+        assertThrows(IllegalArgumentException.class, () -> new P2Quantile(0));
+        assertThrows(IllegalArgumentException.class, () -> new P2Quantile(1));
+        assertThrows(IllegalArgumentException.class, () -> new P2Quantile(Double.NaN));
+    }
+
+    //最近秩法的精确分位数
+    private static double exact(double[] sample, double p) {
+        double[] sorted = sample.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(p * sorted.length) - 1];
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import cn.hutool.poi.excel.ExcelReader;
+import cn.hutool.poi.excel.ExcelUtil;
+import com.example.guowangwaveformanalysis.pojo.ExcelSheetData;
+import com.example.guowangwaveformanalysis.pojo.MeasurementMatrix;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 报告生成各阶段的基准：解析Excel、从数据集缓存取出解析结果、回填合并单元格、替换占位符、限值比较、填表、插入图片、生成图表、写出文档。
+ * 运行：mvn -P benchmark verify（gc 分析器同时给出每次操作的分配量 gc.alloc.rate.norm）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportStageBenchmark {
+
+    //Excel 输入，extraRows 为统计区之后的明细行数
+    @State(Scope.Benchmark)
+    public static class ExcelInput {
+        @Param({"0", "2000", "20000"})
+        public int extraRows;
+        @Param({"streaming", "dom"})
+        public String reader;
+        //单份报告内的并行度，dom 方式始终按顺序读取
+        @Param({"1", "4"})
+        public int parallelism;
+
+        XlsServiceImpl service;
+        byte[] excel;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            service = BenchmarkFixtures.newService(reader, parallelism);
+            excel = BenchmarkFixtures.excel(extraRows);
+        }
+    }
+
+    //hutool 读出的电压谐波表及其合并区域
+    @State(Scope.Benchmark)
+    public static class MergedSheet {
+        @Param({"0", "2000", "20000"})
+        public int extraRows;
+
+        XlsServiceImpl service;
+        List<List<Object>> voltageRows;
+        List<CellRangeAddress> voltageMergedRegions;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            service = BenchmarkFixtures.newService("dom");
+            ExcelReader excelReader = ExcelUtil.getReader(new ByteArrayInputStream(BenchmarkFixtures.excel(extraRows)), "电压谐波");
+            try {
+                voltageRows = excelReader.read();
+                voltageMergedRegions = excelReader.getSheet().getMergedRegions();
+            } finally {
+                excelReader.close();
+            }
+        }
+    }
+
+    //已解析的数据与已填好的文档，填表与写出反复作用在同一文档上
+    @State(Scope.Benchmark)
+    public static class FilledReport {
+        XlsServiceImpl service;
+        MeasurementMatrix[] sheets;
+        XWPFDocument doc;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            service = BenchmarkFixtures.newService("streaming");
+            ExcelSheetData data = service.parseExcelFromStream(new ByteArrayInputStream(BenchmarkFixtures.excel(0)));
+            sheets = service.getMappingPlan().resolveSheets(data);
+            doc = new XWPFDocument(new ByteArrayInputStream(BenchmarkFixtures.template()));
+            for (int i = 0; i < service.getMappingPlan().getTableCount(); i++) {
+                service.fillTable(doc.getTables().get(i), i, sheets);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            doc.close();
+        }
+    }
+
+    //数据集缓存中的一份解析结果，extraRows 与 ExcelInput 相同，便于与重新解析对比
+    @State(Scope.Benchmark)
+    public static class CachedDataset {
+        @Param({"0", "2000", "20000"})
+        public int extraRows;
+
+        DatasetCache cache;
+        String datasetId;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            XlsServiceImpl service = BenchmarkFixtures.newService("streaming");
+            cache = new DatasetCache(30, 64L << 20);
+            datasetId = cache.put(service.parseExcelFromStream(new ByteArrayInputStream(BenchmarkFixtures.excel(extraRows))));
+        }
+    }
+
+    //映射配置中的第几张表
+    @State(Scope.Benchmark)
+    public static class TargetTable {
+        @Param({"0", "1", "2", "3"})
+        public int index;
+    }
+
+    //四张表一起填写，比较按顺序与并行填写的耗时；每次调用前重新打开模板
+    @State(Scope.Thread)
+    public static class AllTables {
+        @Param({"1", "4"})
+        public int parallelism;
+
+        XlsServiceImpl service;
+        MeasurementMatrix[] sheets;
+        byte[] template;
+        XWPFDocument doc;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            service = BenchmarkFixtures.newService("streaming", parallelism);
+            ExcelSheetData data = service.parseExcelFromStream(new ByteArrayInputStream(BenchmarkFixtures.excel(0)));
+            sheets = service.getMappingPlan().resolveSheets(data);
+            template = BenchmarkFixtures.template();
+        }
+
+        @Setup(Level.Invocation)
+        public void open() throws IOException {
+            doc = new XWPFDocument(new ByteArrayInputStream(template));
+        }
+
+        @TearDown(Level.Invocation)
+        public void close() throws IOException {
+            doc.close();
+        }
+    }
+
+    //每次调用前重新打开的模板，用于会消耗占位符的阶段
+    @State(Scope.Thread)
+    public static class FreshTemplate {
+        XlsServiceImpl service;
+        byte[] template;
+        byte[] image;
+        Map<String, String> replaceMap;
+        MeasurementMatrix[] sheets;
+        XWPFDocument doc;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            service = BenchmarkFixtures.newService("streaming");
+            template = BenchmarkFixtures.template();
+            image = BenchmarkFixtures.png(1600, 1000);
+            replaceMap = BenchmarkFixtures.replaceMap();
+            ExcelSheetData data = service.parseExcelFromStream(new ByteArrayInputStream(BenchmarkFixtures.excel(0)));
+            sheets = service.getMappingPlan().resolveSheets(data);
+        }
+
+        @Setup(Level.Invocation)
+        public void open() throws IOException {
+            doc = new XWPFDocument(new ByteArrayInputStream(template));
+        }
+
+        @TearDown(Level.Invocation)
+        public void close() throws IOException {
+            doc.close();
+        }
+    }
+
+    @Benchmark
+    public ExcelSheetData parseExcelFromStream(ExcelInput input) throws IOException {
+        return input.service.parseExcelFromStream(new ByteArrayInputStream(input.excel));
+    }
+
+    @Benchmark
+    public ExcelSheetData loadDataset(CachedDataset dataset) {
+        return dataset.cache.get(dataset.datasetId);
+    }
+
+    @Benchmark
+    public List<List<Object>> processMergedCells(MergedSheet sheet) {
+        sheet.service.processMergedCells(sheet.voltageRows, sheet.voltageMergedRegions);
+        return sheet.voltageRows;
+    }
+
+    @Benchmark
+    public int replacePlaceholders(FreshTemplate state) {
+        return state.service.replacePlaceholders(state.doc, new HashMap<>(state.replaceMap));
+    }
+
+    //全部配置了限值的单元格一次比较完
+    @Benchmark
+    public CompliancePlan.Result evaluateCompliance(FilledReport report) {
+        return report.service.getCompliancePlan().evaluate(report.sheets);
+    }
+
+    //四张统计表分别对应原先的 fillVoltageHarmonicTable、fillCurrentHarmonicTable、
+    //fillFrequencyDeviationAndVoltageUnbalanceAndLongTermFlickerTable、fillVoltageDeviationTable
+    @Benchmark
+    public XWPFTable fillTable(FilledReport report, TargetTable target) {
+        XWPFTable table = report.doc.getTables().get(target.index);
+        report.service.fillTable(table, target.index, report.sheets);
+        return table;
+    }
+
+    @Benchmark
+    public XWPFDocument fillTables(AllTables state) {
+        state.service.fillTables(state.doc.getTables(), state.sheets);
+        return state.doc;
+    }
+
+    @Benchmark
+    public XWPFDocument insertImage(FreshTemplate state) throws Exception {
+        state.service.insertImageAndModifyCaption(DocumentIndex.build(state.doc), "{{image1}}", new ByteArrayInputStream(state.image),
+                XWPFDocument.PICTURE_TYPE_PNG, 400, 250, "1#主变10kV侧");
+        return state.doc;
+    }
+
+    //映射配置中的第一个图表（各次谐波电压含有率）
+    @Benchmark
+    public XWPFDocument insertChart(FreshTemplate state) throws Exception {
+        state.service.insertChartAndModifyCaption(DocumentIndex.build(state.doc), 0, state.sheets, 400, 250, "1#主变10kV侧");
+        return state.doc;
+    }
+
+    @Benchmark
+    public void writeDocument(FilledReport report) throws IOException {
+        report.doc.write(OutputStream.nullOutputStream());
+    }
+}
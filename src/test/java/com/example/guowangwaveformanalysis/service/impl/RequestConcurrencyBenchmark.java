@@ -0,0 +1,118 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import com.example.guowangwaveformanalysis.config.VirtualThreadConfig;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 请求处理方式的并发基准：每批 requests 个请求同时到达，每个请求先阻塞 ioMillis（模拟上传、下载的网络等待），
+ * 再完整走一次 processExcelFile（解析合成 Excel、填充模板、写出报告文件）。
+ * platform 与 Tomcat 默认相同，最多 200 个平台线程，解析、填充在请求线程上执行；
+ * platform-per-request 每个请求一个平台线程，解析、填充交给线程数为 CPU 核数的平台线程池，是与 virtual 并发数相同的对照；
+ * virtual 与 virtual-threads profile 相同，每个请求一个虚拟线程，解析、填充同样交给 CPU 核数的平台线程池。
+ * virtual 需在 JDK 21 及以上运行：mvn -P benchmark verify -Dbenchmark.include=RequestConcurrencyBenchmark
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RequestConcurrencyBenchmark {
+
+    //Tomcat 默认的 server.tomcat.threads.max
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    @State(Scope.Benchmark)
+    public static class Server {
+        @Param({"platform", "platform-per-request", "virtual"})
+        public String mode;
+        @Param({"200"})
+        public int requests;
+        @Param({"20"})
+        public int ioMillis;
+
+        ExecutorService requestExecutor;
+        //platform 模式下为 null
+        ExecutorService cpuExecutor;
+        TemplateServiceImpl templates;
+        XlsServiceImpl service;
+        MultipartFile excel;
+        String templateId;
+        Path outputDir;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            switch (mode) {
+                case "platform":
+                    requestExecutor = Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+                    break;
+                case "platform-per-request":
+                    requestExecutor = Executors.newCachedThreadPool();
+                    cpuExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+                    break;
+                case "virtual":
+                    requestExecutor = VirtualThreadConfig.newVirtualThreadPerTaskExecutor("bench-vt-");
+                    cpuExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+                    break;
+                default:
+                    throw new IllegalArgumentException(mode);
+            }
+            outputDir = Files.createTempDirectory("concurrency-bench");
+            templates = new TemplateServiceImpl(64L << 20, 2);
+            templateId = templates.register(BenchmarkFixtures.templateFile());
+            service = BenchmarkFixtures.newReportService(outputDir, templates, cpuExecutor);
+            excel = BenchmarkFixtures.excelFile(0);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            requestExecutor.shutdownNow();
+            if (cpuExecutor != null) {
+                cpuExecutor.shutdownNow();
+            }
+            templates.shutdown();
+            try (Stream<Path> files = Files.walk(outputDir)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    //一批请求全部完成的时间
+    @Benchmark
+    public int handleBatch(Server server) throws Exception {
+        Map<String, String> fields = BenchmarkFixtures.replaceMap();
+        List<Future<Integer>> responses = new ArrayList<>(server.requests);
+        for (int i = 0; i < server.requests; i++) {
+            responses.add(server.requestExecutor.submit(() -> {
+                Thread.sleep(server.ioMillis);
+                // 填充会向 replaceMap 写入计算出的字段，每个请求用自己的一份
+                String output = server.service.processExcelFile(server.excel, server.templateId, null,
+                        new HashMap<>(fields), null);
+                Files.delete(Paths.get(output));
+                return 1;
+            }));
+        }
+        int handled = 0;
+        for (Future<Integer> response : responses) {
+            handled += response.get();
+        }
+        return handled;
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import com.example.guowangwaveformanalysis.pojo.TableLayout;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 原始时间序列统计计划：列名按相别、谐波次数展开；overlay 只覆盖统计单元格，
+ * 上传的统计工作表中已有的限值保持不变，只在空白单元格上补限值。
+ */
+class SeriesPlanTest {
+
+    static final String SHEET = "电压谐波";
+
+    //A 相统计量从第 2 列起，2～3 次谐波写入第 10、11 行，总畸变率写入第 59 行，限值在第 17 列
+    static SeriesPlan voltagePlan() {
+        TableLayout.Quantity harmonics = new TableLayout.Quantity();
+        harmonics.setHeader("U{phase}_H{h}");
+        harmonics.setSheet(SHEET);
+        harmonics.setRow(10);
+        harmonics.setHarmonics(new int[]{2, 3});
+        TableLayout.Quantity thd = new TableLayout.Quantity();
+        thd.setHeader("U{phase}_THD");
+        thd.setSheet(SHEET);
+        thd.setRow(59);
+        thd.setThdOf("U{phase}_H{h}");
+
+        TableLayout.Limit limit = new TableLayout.Limit();
+        limit.setSheet(SHEET);
+        limit.setRow(10);
+        limit.setCol(17);
+        limit.setValues(List.of(1.6, 3.2));
+
+        TableLayout.Series series = new TableLayout.Series();
+        series.setSheet("原始数据");
+        series.setPhases(Map.of("A", 2));
+        series.setColumns(List.of("max", "mean", "min", "p95"));
+        // THD 在谐波之前声明，来源在全部展开后解析
+        series.setQuantities(List.of(thd, harmonics));
+        series.setLimits(List.of(limit));
+        return SeriesPlan.compile(series, List.of(SHEET));
+    }
+
+    @Test
+    void expandsHeadersCaseInsensitively() {
+        SeriesPlan plan = voltagePlan();
+        assertEquals(3, plan.getTargetCount());
+        int thd = plan.targetOf("UA_THD");
+        int h2 = plan.targetOf(" ua_h2 ");
+        int h3 = plan.targetOf("UA_H3");
+        assertEquals(-1, plan.targetOf("UA_H4"));
+        assertArrayEquals(new int[]{h2, h3}, plan.getThdSources().get(thd));
+        assertArrayEquals(new String[]{
+                "UA_THD.max", "UA_THD.mean", "UA_THD.min", "UA_THD.p95",
+                "UA_H2.max", "UA_H2.mean", "UA_H2.min", "UA_H2.p95",
+                "UA_H3.max", "UA_H3.mean", "UA_H3.min", "UA_H3.p95"}, plan.historyColumns());
+    }
+
+    @Test
+    void rejectsUnknownStatisticAndUndeclaredSheet() {
+        TableLayout.Series series = new TableLayout.Series();
+        series.setSheet("原始数据");
+        series.setColumns(List.of("max", "median"));
+        assertThrows(IllegalStateException.class, () -> SeriesPlan.compile(series, List.of(SHEET)));
+
+        series.setColumns(List.of("max"));
+        TableLayout.Quantity quantity = new TableLayout.Quantity();
+        quantity.setHeader("F");
+        quantity.setSheet("功率");
+        series.setQuantities(List.of(quantity));
+        assertThrows(IllegalStateException.class, () -> SeriesPlan.compile(series, List.of(SHEET)));
+    }
+
+    @Test
+    void overlayWritesOnlyStatisticCellsAndKeepsUploadedLimits() {
+        SeriesPlan plan = voltagePlan();
+        SeriesStatistics statistics = plan.newStatistics();
+        statistics.accept(List.of(
+                Arrays.asList("时间", "UA_H2", "UA_H3", "UA_THD"),
+                Arrays.asList("00:00", 1.0, 2.0, 3.0),
+                Arrays.asList("00:03", 3.0, 4.0, 5.0)));
+
+        // 上传的统计工作表：第 10 行已有名称、其他列和限值，第 11 行限值为空
+        Map<String, List<List<Object>>> sheets = new HashMap<>();
+        List<List<Object>> rows = new ArrayList<>();
+        for (int r = 0; r < 12; r++) {
+            rows.add(new ArrayList<>());
+        }
+        rows.set(10, new ArrayList<>(Arrays.asList("2次", null, 9.0, 9.0, 9.0, 9.0, "保留",
+                null, null, null, null, null, null, null, null, null, null, 2.0)));
+        rows.set(11, new ArrayList<>(Arrays.asList("3次", null, null, null, null, null, null,
+                null, null, null, null, null, null, null, null, null, null, "")));
+        sheets.put(SHEET, rows);
+
+        plan.overlay(statistics, sheets);
+
+        List<Object> h2 = rows.get(10);
+        assertEquals(List.of(3.0, 2.0, 1.0, 3.0), h2.subList(2, 6));
+        assertEquals("2次", h2.get(0));
+        assertNull(h2.get(1));
+        assertEquals("保留", h2.get(6));
+        // 已有限值不覆盖，空白处补上
+        assertEquals(2.0, h2.get(17));
+        assertEquals(List.of(4.0, 3.0, 2.0, 4.0), rows.get(11).subList(2, 6));
+        assertEquals(3.2, rows.get(11).get(17));
+        assertEquals(List.of(5.0, 4.0, 3.0, 5.0), rows.get(59).subList(2, 6));
+    }
+
+    @Test
+    void overlayCreatesMissingSheetAndSkipsTargetsWithoutData() {
+        SeriesPlan plan = voltagePlan();
+        SeriesStatistics statistics = plan.newStatistics();
+        // 只有 3 次谐波一列：UA_THD 由 H3 推算，UA_H2 没有数据
+        statistics.accept(List.of(
+                List.of("UA_H3"),
+                List.of(2.0)));
+
+        Map<String, List<List<Object>>> sheets = new HashMap<>();
+        plan.overlay(statistics, sheets);
+
+        List<List<Object>> rows = sheets.get(SHEET);
+        // 没有数据的 UA_H2 不写统计值，只补限值
+        assertEquals(18, rows.get(10).size());
+        assertFalse(rows.get(10).subList(0, 17).stream().anyMatch(v -> v != null));
+        assertEquals(1.6, rows.get(10).get(17));
+        assertEquals(List.of(2.0, 2.0, 2.0, 2.0), rows.get(11).subList(2, 6));
+        assertEquals(3.2, rows.get(11).get(17));
+        assertEquals(List.of(2.0, 2.0, 2.0, 2.0), rows.get(59).subList(2, 6));
+    }
+}
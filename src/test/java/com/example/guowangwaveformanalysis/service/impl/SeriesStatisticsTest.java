@@ -0,0 +1,79 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 原始时间序列的单遍统计：最大、平均、最小、95% 概率值；原始数据中没有总畸变率列时按 sqrt(Σ HRUh²) 逐行推算，
+ * 有该列时直接使用上传的值。
+ */
+class SeriesStatisticsTest {
+
+    //统计量在 columns 中的顺序
+    private static final int MAX = 0, MEAN = 1, MIN = 2, P95 = 3;
+
+    @Test
+    void computesStatisticsPerTarget() {
+        SeriesPlan plan = SeriesPlanTest.voltagePlan();
+        SeriesStatistics statistics = plan.newStatistics();
+        statistics.accept(List.of(
+                Arrays.asList("时间", "UA_H2", "其他"),
+                Arrays.asList("00:00", 1.0, 100.0),
+                Arrays.asList("00:03", 4.0, 100.0),
+                // 非数值单元格不参与统计，但仍计一行
+                Arrays.asList("00:06", "-", 100.0),
+                Arrays.asList("00:09", 2.5, 100.0)));
+
+        int h2 = plan.targetOf("UA_H2");
+        assertEquals(4, statistics.getRows());
+        assertEquals(3, statistics.count(h2));
+        assertEquals(4.0, statistics.statistic(h2, MAX));
+        assertEquals(2.5, statistics.statistic(h2, MEAN));
+        assertEquals(1.0, statistics.statistic(h2, MIN));
+        assertEquals(4.0, statistics.statistic(h2, P95));
+        // 没有数据的目标为 NaN
+        assertEquals(0, statistics.count(plan.targetOf("UA_H3")));
+        assertTrue(Double.isNaN(statistics.statistic(plan.targetOf("UA_H3"), MAX)));
+    }
+
+    @Test
+    void derivesThdFromHarmonicsWhenColumnIsMissing() {
+        SeriesPlan plan = SeriesPlanTest.voltagePlan();
+        SeriesStatistics statistics = plan.newStatistics();
+        statistics.accept(List.of(
+                Arrays.asList("时间", "UA_H2", "UA_H3"),
+                Arrays.asList("00:00", 3.0, 4.0),
+                Arrays.asList("00:03", 6.0, 8.0),
+                // 缺一次谐波时按已有的各次计算
+                Arrays.asList("00:06", 1.5, null),
+                // 整行没有谐波时不产生总畸变率样本
+                Arrays.asList("00:09", null, null)));
+
+        int thd = plan.targetOf("UA_THD");
+        assertEquals(3, statistics.count(thd));
+        assertEquals(10.0, statistics.statistic(thd, MAX), 1e-12);
+        assertEquals((5.0 + 10.0 + 1.5) / 3, statistics.statistic(thd, MEAN), 1e-12);
+        assertEquals(1.5, statistics.statistic(thd, MIN), 1e-12);
+        assertEquals(10.0, statistics.statistic(thd, P95), 1e-12);
+    }
+
+    @Test
+    void usesUploadedThdColumnWhenPresent() {
+        SeriesPlan plan = SeriesPlanTest.voltagePlan();
+        SeriesStatistics statistics = plan.newStatistics();
+        statistics.accept(List.of(
+                Arrays.asList("UA_H2", "UA_H3", "ua_thd"),
+                Arrays.asList(3.0, 4.0, 4.8),
+                Arrays.asList(6.0, 8.0, 9.9)));
+
+        int thd = plan.targetOf("UA_THD");
+        assertEquals(2, statistics.count(thd));
+        assertEquals(9.9, statistics.statistic(thd, MAX));
+        assertEquals(4.8, statistics.statistic(thd, MIN));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.guowangwaveformanalysis.service.impl;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 模板缓存：图片等二进制部件不按解析后的 XML 放大计算，带大图的模板不会挤掉缓存中的其他模板；
+ * 排队任务锁定（pin）的模板在解锁前不被淘汰。
+ */
+class TemplateServiceImplTest {
+
+    //与默认配置相同：64 MiB、2 份预解析副本
+    private final TemplateServiceImpl templates = new TemplateServiceImpl(64L << 20, 2);
+
+    @AfterEach
+    void shutdown() {
+        templates.shutdown();
+    }
+
+    @Test
+    void embeddedMediaDoesNotInflateTheEstimate() throws Exception {
+        byte[] withLogo = template("带图模板", 600 * 1024);
+        long xml = TemplateServiceImpl.xmlBytes(withLogo);
+        assertTrue(xml > 0 && xml < 64 * 1024, "XML 部件 " + xml + " 字节");
+
+        String first = templates.register(file(withLogo));
+        String second = templates.register(file(template("另一个带图模板", 600 * 1024)));
+        String small = templates.register(file(template("小模板", 0)));
+        for (String id : new String[]{first, second, small}) {
+            assertDoesNotThrow(() -> templates.open(id).close());
+        }
+    }
+
+    @Test
+    void pinnedTemplateSurvivesEviction() throws Exception {
+        // 上限极小，每登记一个新模板都要淘汰其余未锁定的模板
+        TemplateServiceImpl tiny = new TemplateServiceImpl(1, 0);
+        try {
+            String queued = tiny.register(file(template("排队任务的模板", 0)));
+            tiny.pin(queued);
+            String other = tiny.register(file(template("其他模板", 0)));
+            tiny.register(file(template("最新模板", 0)));
+
+            assertDoesNotThrow(() -> tiny.open(queued).close());
+            assertThrows(IllegalArgumentException.class, () -> tiny.open(other));
+
+            tiny.unpin(queued);
+            assertThrows(IllegalArgumentException.class, () -> tiny.pin(other));
+        } finally {
+            tiny.shutdown();
+        }
+    }
+
+    private static MockMultipartFile file(byte[] content) {
+        return new MockMultipartFile("templateFile", "template.docx",
+                "application/vnd.openxmlformats-officedocument.wordprocessingml.document", content);
+    }
+
+    //一段文字加 mediaBytes 字节的图片部件（随机内容，压缩后大小不变）
+    private static byte[] template(String text, int mediaBytes) throws IOException, InvalidFormatException {
+        try (XWPFDocument doc = new XWPFDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            doc.createParagraph().createRun().setText(text + " {{reportNo}}");
+            if (mediaBytes > 0) {
+                byte[] media = new byte[mediaBytes];
+                new Random(mediaBytes + text.hashCode()).nextBytes(media);
+                doc.addPictureData(media, XWPFDocument.PICTURE_TYPE_PNG);
+            }
+            doc.write(out);
+            return out.toByteArray();
+        }
+    }
+}